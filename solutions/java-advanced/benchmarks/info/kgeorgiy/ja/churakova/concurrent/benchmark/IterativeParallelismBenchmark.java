@@ -0,0 +1,184 @@
+package info.kgeorgiy.ja.churakova.concurrent.benchmark;
+
+import info.kgeorgiy.ja.churakova.concurrent.IterativeParallelism;
+import info.kgeorgiy.ja.churakova.concurrent.ParallelMapperImpl;
+import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * JMH benchmarks for every {@link AdvancedIP} operation of {@link IterativeParallelism}
+ * <p>
+ * Each operation is measured with thread per block and with {@link ParallelMapperImpl}.
+ * Predicates are chosen so that whole list is scanned. User functions are cheap by default,
+ * run with {@code -p cost=expensive} to measure expensive ones, or with {@code -p size=...}, {@code -p threads=...}
+ * for other sizes and amounts of threads. Run with {@code -prof gc} to get allocation rate,
+ * see {@code scripts/concurrentBenchmark.sh}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class IterativeParallelismBenchmark {
+    private static final long EXPENSIVE_TOKENS = 100;
+
+    @Param({"1000", "1000000"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    @Param({"threads", "mapper"})
+    private String mode;
+
+    @Param({"cheap"})
+    private String cost;
+
+    private List<Integer> values;
+    private ParallelMapperImpl mapper;
+    private IterativeParallelism ip;
+    private Comparator<Integer> comparator;
+    private Function<Integer, Integer> function;
+    private AdvancedIP.Monoid<Integer> monoid;
+
+    /**
+     * Prepares data and instance of {@link IterativeParallelism} for current parameters
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        values = new Random(4875043285743285204L).ints(size, 0, Integer.MAX_VALUE).boxed()
+                .collect(Collectors.toList());
+        mapper = "mapper".equals(mode) ? new ParallelMapperImpl(threads) : null;
+        ip = mapper == null ? new IterativeParallelism() : new IterativeParallelism(mapper);
+        boolean expensive = "expensive".equals(cost);
+        comparator = expensive ? (a, b) -> {
+            Blackhole.consumeCPU(EXPENSIVE_TOKENS);
+            return Integer.compare(a, b);
+        } : Integer::compare;
+        function = expensive ? v -> {
+            Blackhole.consumeCPU(EXPENSIVE_TOKENS);
+            return v / 2;
+        } : v -> v / 2;
+        monoid = new AdvancedIP.Monoid<>(0, expensive ? (a, b) -> {
+            Blackhole.consumeCPU(EXPENSIVE_TOKENS);
+            return a ^ b;
+        } : (a, b) -> a ^ b);
+    }
+
+    /**
+     * Stops mapper threads
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (mapper != null) {
+            mapper.close();
+        }
+    }
+
+    private Predicate<Integer> predicate(Predicate<Integer> cheap) {
+        return "expensive".equals(cost) ? v -> {
+            Blackhole.consumeCPU(EXPENSIVE_TOKENS);
+            return cheap.test(v);
+        } : cheap;
+    }
+
+    /**
+     * @return maximum of values
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return ip.maximum(threads, values, comparator);
+    }
+
+    /**
+     * @return minimum of values
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public Integer minimum() throws InterruptedException {
+        return ip.minimum(threads, values, comparator);
+    }
+
+    /**
+     * @return {@code true}, predicate holds for every value
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public boolean all() throws InterruptedException {
+        return ip.all(threads, values, predicate(v -> v >= 0));
+    }
+
+    /**
+     * @return {@code false}, predicate holds for no value
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public boolean any() throws InterruptedException {
+        return ip.any(threads, values, predicate(v -> v < 0));
+    }
+
+    /**
+     * @return amount of values divisible by three
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public int count() throws InterruptedException {
+        return ip.count(threads, values, predicate(v -> v % 3 == 0));
+    }
+
+    /**
+     * @return joined values
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public String join() throws InterruptedException {
+        return ip.join(threads, values);
+    }
+
+    /**
+     * @return even values
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public List<Integer> filter() throws InterruptedException {
+        return ip.filter(threads, values, predicate(v -> v % 2 == 0));
+    }
+
+    /**
+     * @return mapped values
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return ip.map(threads, values, function);
+    }
+
+    /**
+     * @return values reduced by monoid
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public Integer reduce() throws InterruptedException {
+        return ip.reduce(threads, values, monoid);
+    }
+
+    /**
+     * @return mapped values reduced by monoid
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public Integer mapReduce() throws InterruptedException {
+        return ip.mapReduce(threads, values, function, monoid);
+    }
+}
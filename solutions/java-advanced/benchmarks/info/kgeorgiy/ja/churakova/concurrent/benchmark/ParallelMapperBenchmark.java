@@ -0,0 +1,60 @@
+package info.kgeorgiy.ja.churakova.concurrent.benchmark;
+
+import info.kgeorgiy.ja.churakova.concurrent.ParallelMapperImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmark of latency of {@link ParallelMapperImpl#map} on short lists
+ * <p>
+ * User function is cheap, so time of call is mostly time of passing jobs to workers and waking up caller.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelMapperBenchmark {
+    @Param({"1", "10", "100"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    private List<Integer> values;
+    private ParallelMapperImpl mapper;
+    private Function<Integer, Integer> function;
+
+    /**
+     * Starts mapper and prepares values for current parameters
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        mapper = new ParallelMapperImpl(threads);
+        function = v -> v / 2;
+    }
+
+    /**
+     * Stops mapper threads
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mapper.close();
+    }
+
+    /**
+     * @return mapped values
+     * @throws InterruptedException if benchmark thread was interrupted
+     */
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return mapper.map(function, values);
+    }
+}
@@ -0,0 +1,54 @@
+package info.kgeorgiy.ja.churakova.concurrent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Iterative parallelism for aggregation of values by keys.
+ */
+public interface GroupingIP {
+    /**
+     * Groups values by key.
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to group.
+     * @param classifier function computing key of value.
+     * @param <T>        value type.
+     * @param <K>        key type.
+     * @return map from every key to values having this key in order of given values
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    <T, K> Map<K, List<T>> groupBy(int threads, List<? extends T> values, Function<? super T, ? extends K> classifier)
+            throws InterruptedException;
+
+    /**
+     * Counts values by key.
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to count.
+     * @param classifier function computing key of value.
+     * @param <T>        value type.
+     * @param <K>        key type.
+     * @return map from every key to number of values having this key
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    <T, K> Map<K, Long> countBy(int threads, List<? extends T> values, Function<? super T, ? extends K> classifier)
+            throws InterruptedException;
+
+    /**
+     * Counts values by bucket index.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to count.
+     * @param bucket  function computing bucket of value, from {@code 0} to {@code buckets - 1}.
+     * @param buckets number of buckets.
+     * @param <T>     value type.
+     * @return array containing number of values in every bucket
+     * @throws InterruptedException      if executing thread was interrupted.
+     * @throws IndexOutOfBoundsException if {@code bucket} returned index out of range.
+     */
+    <T> long[] histogram(int threads, List<? extends T> values, ToIntFunction<? super T> bucket, int buckets)
+            throws InterruptedException;
+}
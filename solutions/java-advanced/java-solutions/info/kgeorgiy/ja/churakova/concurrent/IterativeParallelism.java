@@ -3,14 +3,24 @@ package info.kgeorgiy.ja.churakova.concurrent;
 import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class IterativeParallelism implements AdvancedIP {
+public class IterativeParallelism implements AdvancedIP, PrimitiveIP, OrderingIP, GroupingIP {
+    private static final int JOIN_WINDOW = 1 << 14;
+
     private final ParallelMapper parallelMapper;
+    private final Executor executor;
+    private final int grain;
 
 
     /**
@@ -19,21 +29,65 @@ public class IterativeParallelism implements AdvancedIP {
      * @param parallelMapper {@link ParallelMapper} maintain parallel execution
      */
     public IterativeParallelism(ParallelMapper parallelMapper) {
+        this(parallelMapper, 0);
+    }
+
+    /**
+     * Constructs class with given {@link ParallelMapper} that splits values into chunks of given size
+     * <p>
+     * Every thread takes next chunk as soon as it finishes previous one, so thread that got slow chunk
+     * doesn't delay others. Non-positive {@code grain} means one block for every thread.
+     *
+     * @param parallelMapper {@link ParallelMapper} maintain parallel execution
+     * @param grain          amount of elements in chunk
+     */
+    public IterativeParallelism(ParallelMapper parallelMapper, int grain) {
         this.parallelMapper = parallelMapper;
+        this.executor = null;
+        this.grain = grain;
+    }
+
+    /**
+     * Constructs class that runs blocks on given {@link Executor} instead of starting new thread for each block
+     * <p>
+     * Calling thread processes one of the blocks by itself, others are passed to {@code executor},
+     * so pooled executor is reused between calls and virtual-thread-per-task executor may be used as well.
+     *
+     * @param executor {@link Executor} maintain parallel execution
+     */
+    public IterativeParallelism(Executor executor) {
+        this(executor, 0);
+    }
+
+    /**
+     * Constructs class that runs chunks of given size on given {@link Executor}
+     * <p>
+     * Every thread takes next chunk as soon as it finishes previous one, so thread that got slow chunk
+     * doesn't delay others. Non-positive {@code grain} means one block for every thread.
+     *
+     * @param executor {@link Executor} maintain parallel execution
+     * @param grain    amount of elements in chunk
+     */
+    public IterativeParallelism(Executor executor, int grain) {
+        this.parallelMapper = null;
+        this.executor = executor;
+        this.grain = grain;
     }
 
     /**
      * Default constructor
      */
     public IterativeParallelism() {
-        this.parallelMapper = null;
+        this((Executor) null, 0);
     }
 
 
     /**
      * Transforms given list of elements into string
      * <p>
-     * For each object in list call to {@link Object#toString} and concatenate these string values
+     * For each object in list call to {@link Object#toString} and concatenate these string values.
+     * Every block joins its string values, strings of blocks are concatenated by {@link String#join},
+     * that sums their lengths first and copies them straight into the result
      *
      * @param threads number of concurrent threads.
      * @param values  values to join.
@@ -42,12 +96,48 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
+        return String.join("", joinBlocks(threads, values));
+    }
+
+    /**
+     * Writes string values of given elements to {@link Appendable} in order of elements
+     * <p>
+     * Unlike {@link #join(int, List)} whole result is never kept in memory, so may be used for huge outputs.
+     * Values are taken by single pass of iterator into windows of at most {@value #JOIN_WINDOW} elements
+     * for every thread, window is written to {@code out} before the next one is taken,
+     * so only one window of elements and its string values are kept
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to join.
+     * @param out     {@link Appendable} to write string values to, e.g. {@link java.io.Writer}
+     * @throws InterruptedException if during executing some threads were interrupted
+     * @throws IOException          if error occur during writing to {@code out}
+     */
+    public void join(int threads, List<?> values, Appendable out) throws InterruptedException, IOException {
+        checkArgs(threads);
+        long capacity = (long) threads * JOIN_WINDOW;
+        List<Object> window = new ArrayList<>();
+        Iterator<?> iterator = values.iterator();
+        while (iterator.hasNext()) {
+            window.clear();
+            while (iterator.hasNext() && window.size() < capacity) {
+                window.add(iterator.next());
+            }
+            for (String joined : joinBlocks(threads, window)) {
+                out.append(joined);
+            }
+        }
+    }
+
+    private List<String> joinBlocks(int threads, List<?> values) throws InterruptedException {
         return execute(threads, values, stream -> stream.map(Object::toString).collect(Collectors.joining()),
-                stream -> stream.collect(Collectors.joining()));
+                stream -> stream.collect(Collectors.toList()));
     }
 
     /**
      * Filters elements from given list by predicate
+     * <p>
+     * Filtered elements of all blocks are copied once into resulting list of exact size
      *
      * @param threads   number of concurrent threads.
      * @param values    values to filter.
@@ -58,12 +148,27 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return execute(threads, values, stream -> stream.filter(predicate).collect(Collectors.toList()),
-                stream -> stream.flatMap(Collection::stream).collect(Collectors.toList()));
+        return execute(threads, values, stream -> stream.filter(predicate).collect(Collectors.<T>toList()),
+                this::concatenate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> concatenate(Stream<List<T>> stream) {
+        List<List<T>> parts = stream.collect(Collectors.toList());
+        Object[] result = new Object[parts.stream().mapToInt(List::size).sum()];
+        int index = 0;
+        for (List<T> part : parts) {
+            for (T value : part) {
+                result[index++] = value;
+            }
+        }
+        return (List<T>) Arrays.asList(result);
     }
 
     /**
      * Using parameter function get from given list of elements list of values that have type that is function return type
+     * <p>
+     * Every block writes mapped values straight into its part of resulting list
      *
      * @param threads number of concurrent threads.
      * @param values  values to map.
@@ -74,9 +179,11 @@ public class IterativeParallelism implements AdvancedIP {
      * @throws InterruptedException if during executing some threads were interrupted
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
-        return execute(threads, values, stream -> stream.map(f).collect(Collectors.toList()), stream -> stream
-                .flatMap(Collection::stream).collect(Collectors.toList()));
+        Object[] result = new Object[values.size()];
+        forEachIndexed(threads, values, (value, index) -> result[index] = f.apply(value));
+        return (List<U>) Arrays.asList(result);
     }
 
     /**
@@ -116,6 +223,10 @@ public class IterativeParallelism implements AdvancedIP {
 
     /**
      * Check whether at least any one of values satisfies the predicate
+     * <p>
+     * As soon as some block finds matching value other blocks stop at their next element
+     * and result is returned without waiting for them. Exceptions thrown by blocks that are still running then
+     * are not reported.
      *
      * @param threads   number of concurrent threads.
      * @param values    values to test.
@@ -126,8 +237,9 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return execute(threads, values, stream -> stream.anyMatch(predicate),
-                stream -> stream.anyMatch(res -> res));
+        AtomicBoolean found = new AtomicBoolean();
+        return execute(threads, values, stream -> stream.anyMatch(shortCircuit(predicate, found)),
+                stream -> stream.anyMatch(Boolean.TRUE::equals), res -> res);
     }
 
     /**
@@ -147,12 +259,28 @@ public class IterativeParallelism implements AdvancedIP {
 
     }
 
+    private <T> Predicate<T> shortCircuit(Predicate<? super T> predicate, AtomicBoolean found) {
+        return value -> {
+            if (found.get()) {
+                return true;
+            }
+            if (predicate.test(value)) {
+                found.set(true);
+                return true;
+            }
+            return false;
+        };
+    }
+
     private Long sumAccum(Long a, Long b) {
         return a + b;
     }
 
     /**
      * Check whether all values satisfy the predicate
+     * <p>
+     * Stops all blocks as soon as some block finds value that doesn't satisfy the predicate,
+     * exceptions thrown by blocks that are still running then are not reported, as in {@link #any}
      *
      * @param threads   number of concurrent threads.
      * @param values    values to test.
@@ -180,12 +308,13 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T> T reduce(int threads, List<T> values, Monoid<T> monoid) throws InterruptedException {
-        return values.stream().reduce(monoid.getOperator()).orElse(monoid.getIdentity());
+        return mapReduce(threads, values, Function.identity(), monoid);
     }
 
     /**
      * Maps values by mapping {@link Function} and reduce them by provided {@link Monoid}
      * <p>
+     * Every block maps and reduces its values at once, so no intermediate list of mapped values is created.
      * if no values specified returns {@link Monoid#getIdentity() identity}
      *
      * @param threads number of concurrent threads.
@@ -199,51 +328,634 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public <T, R> R mapReduce(int threads, List<T> values, Function<T, R> lift, Monoid<R> monoid) throws InterruptedException {
-        return reduce(threads, map(threads, values, lift), monoid);
+        return execute(threads, values, stream -> stream.map(lift).reduce(monoid.getIdentity(), monoid.getOperator()),
+                stream -> stream.reduce(monoid.getIdentity(), monoid.getOperator()));
     }
 
+    /**
+     * Sorts given values
+     * <p>
+     * Every block sorts its values, then sorted runs are merged by pairs, pairs of runs are merged in parallel
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to sort.
+     * @param comparator value comparator.
+     * @param <T>        type of elements in list values
+     * @return list of given values in ascending order
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> sort(int threads, List<? extends T> values, Comparator<? super T> comparator) throws InterruptedException {
+        Comparator<Object> cmp = (Comparator<Object>) comparator;
+        List<Object[]> runs = execute(threads, values, stream -> {
+            Object[] run = stream.toArray();
+            Arrays.sort(run, cmp);
+            return run;
+        }, stream -> stream.collect(Collectors.toList()));
+        while (runs.size() > 1) {
+            List<Object[]> current = runs;
+            runs = executeBlocks(threads, (current.size() + 1) / 2, block -> {
+                List<Object[]> merged = new ArrayList<>();
+                for (int i = 2 * block.from(); i < 2 * block.to(); i += 2) {
+                    merged.add(i + 1 < current.size() ? merge(current.get(i), current.get(i + 1), cmp) : current.get(i));
+                }
+                return merged;
+            }, stream -> stream.flatMap(List::stream).collect(Collectors.toList()));
+        }
+        return runs.isEmpty() ? new ArrayList<>() : (List<T>) Arrays.asList(runs.get(0));
+    }
+
+    private Object[] merge(Object[] left, Object[] right, Comparator<Object> comparator) {
+        Object[] result = new Object[left.length + right.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < result.length; k++) {
+            // left value goes first if equal, so merge is stable
+            result[k] = j == right.length || i < left.length && comparator.compare(left[i], right[j]) <= 0
+                    ? left[i++] : right[j++];
+        }
+        return result;
+    }
 
-    private <E, T> E execute(int threads_cnt, List<T> elements, Function<Stream<T>, E> reckoner,
-                             Function<Stream<E>, E> reducer) throws InterruptedException {
+    /**
+     * Greatest {@code k} values from given values
+     * <p>
+     * Every block keeps only {@code k} greatest of its values in heap, so values are never sorted entirely
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to get greatest of.
+     * @param k          amount of values to return.
+     * @param comparator value comparator.
+     * @param <T>        type of elements in list values
+     * @return {@code k} greatest values in descending order or all values if there are less than {@code k} values
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T> List<T> topK(int threads, List<? extends T> values, int k, Comparator<? super T> comparator)
+            throws InterruptedException {
+        if (k < 0) {
+            throw new IllegalArgumentException("Amount of values must be >=0");
+        }
+        PriorityQueue<T> top = execute(threads, values, stream -> {
+            PriorityQueue<T> heap = new PriorityQueue<>(comparator);
+            stream.forEach(value -> offerBounded(heap, value, k));
+            return heap;
+        }, stream -> {
+            PriorityQueue<T> heap = new PriorityQueue<>(comparator);
+            stream.forEach(part -> part.forEach(value -> offerBounded(heap, value, k)));
+            return heap;
+        });
+        List<T> result = new ArrayList<>(top);
+        result.sort(comparator.reversed());
+        return result;
+    }
+
+    private <T> void offerBounded(PriorityQueue<T> heap, T value, int bound) {
+        if (heap.size() < bound) {
+            heap.add(value);
+        } else if (bound > 0 && heap.comparator().compare(value, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(value);
+        }
+    }
+
+    /**
+     * Value that is {@code k}-th in sorted given values
+     * <p>
+     * Computed as the least of {@code k} smallest values or the greatest of the rest greatest values,
+     * whichever heap is smaller
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to get value of.
+     * @param k          position of value in sorted values, starting from {@code 1}
+     * @param comparator value comparator.
+     * @param <T>        type of elements in list values
+     * @return value that is {@code k}-th in sorted given values
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T> T kthSmallest(int threads, List<? extends T> values, int k, Comparator<? super T> comparator)
+            throws InterruptedException {
+        if (k < 1 || k > values.size()) {
+            throw new IllegalArgumentException("Position must be from 1 to " + values.size());
+        }
+        int fromEnd = values.size() - k + 1;
+        if (k <= fromEnd) {
+            List<T> smallest = topK(threads, values, k, comparator.reversed());
+            return smallest.get(k - 1);
+        }
+        List<T> greatest = topK(threads, values, fromEnd, comparator);
+        return greatest.get(fromEnd - 1);
+    }
+
+    /**
+     * Groups given values by keys
+     * <p>
+     * Every block groups its values into own maps, keys are split between maps by hash,
+     * so maps with the same keys of different blocks are merged in parallel
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to group.
+     * @param classifier function computing key of value.
+     * @param <T>        type of elements in list values
+     * @param <K>        type of keys
+     * @return map from every key to values having this key in order of given values
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T, K> Map<K, List<T>> groupBy(int threads, List<? extends T> values,
+                                          Function<? super T, ? extends K> classifier) throws InterruptedException {
+        return aggregate(threads, values, classifier, ArrayList::new, List::add, (a, b) -> {
+            a.addAll(b);
+            return a;
+        }, Function.identity());
+    }
+
+    /**
+     * Counts given values by keys
+     * <p>
+     * Blocks count values in mutable {@code long} counters, so counts are boxed only once for every key
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to count.
+     * @param classifier function computing key of value.
+     * @param <T>        type of elements in list values
+     * @param <K>        type of keys
+     * @return map from every key to amount of values having this key
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T, K> Map<K, Long> countBy(int threads, List<? extends T> values,
+                                       Function<? super T, ? extends K> classifier) throws InterruptedException {
+        return aggregate(threads, values, classifier, () -> new long[1], (counter, value) -> counter[0]++, (a, b) -> {
+            a[0] += b[0];
+            return a;
+        }, counter -> counter[0]);
+    }
+
+    /**
+     * Counts given values by bucket indices
+     * <p>
+     * Every block counts values in own array, then arrays are summed by parallel ranges of buckets
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to count.
+     * @param bucket  function computing bucket of value.
+     * @param buckets amount of buckets.
+     * @param <T>     type of elements in list values
+     * @return array containing amount of values in every bucket
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T> long[] histogram(int threads, List<? extends T> values, ToIntFunction<? super T> bucket, int buckets)
+            throws InterruptedException {
+        List<long[]> parts = execute(threads, values, stream -> {
+            long[] counts = new long[buckets];
+            stream.forEach(value -> counts[bucket.applyAsInt(value)]++);
+            return counts;
+        }, stream -> stream.collect(Collectors.toList()));
+        long[] result = new long[buckets];
+        executeBlocks(threads, buckets, block -> {
+            for (long[] counts : parts) {
+                for (int i = block.from(); i < block.to(); i++) {
+                    result[i] += counts[i];
+                }
+            }
+            return null;
+        }, stream -> null);
+        return result;
+    }
+
+    private <T, K, V, R> Map<K, R> aggregate(int threads, List<? extends T> values,
+                                             Function<? super T, ? extends K> classifier, Supplier<V> container,
+                                             BiConsumer<V, T> accumulator, BinaryOperator<V> combiner,
+                                             Function<V, R> finisher) throws InterruptedException {
+        checkArgs(threads);
+        int partitions = Math.max(1, Math.min(threads, values.size()));
+        List<List<Map<K, V>>> parts = execute(threads, values, stream -> {
+            List<Map<K, V>> local = new ArrayList<>();
+            for (int i = 0; i < partitions; i++) {
+                local.add(new HashMap<>());
+            }
+            stream.forEach(value -> {
+                K key = classifier.apply(value);
+                accumulator.accept(local.get(partition(key, partitions)).computeIfAbsent(key, k -> container.get()), value);
+            });
+            return local;
+        }, stream -> stream.collect(Collectors.toList()));
+        List<Map<K, R>> merged = executeBlocks(threads, partitions, block -> {
+            Map<K, R> result = new HashMap<>();
+            for (int p = block.from(); p < block.to(); p++) {
+                Map<K, V> partition = new HashMap<>();
+                for (List<Map<K, V>> part : parts) {
+                    part.get(p).forEach((key, value) -> partition.merge(key, value, combiner));
+                }
+                partition.forEach((key, value) -> result.put(key, finisher.apply(value)));
+            }
+            return result;
+        }, stream -> stream.collect(Collectors.toList()));
+        Map<K, R> result = new HashMap<>(merged.stream().mapToInt(Map::size).sum() * 4 / 3 + 1);
+        merged.forEach(result::putAll);
+        return result;
+    }
+
+    private int partition(Object key, int partitions) {
+        int hash = Objects.hashCode(key);
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+
+    /**
+     * Sum of given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values or {@code 0} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public long sum(int threads, int[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length,
+                block -> Arrays.stream(values, block.from(), block.to()).asLongStream().sum(), this::sumAll);
+    }
+
+    /**
+     * Sum of given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values or {@code 0} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public long sum(int threads, long[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length,
+                block -> Arrays.stream(values, block.from(), block.to()).sum(), this::sumAll);
+    }
+
+    /**
+     * Sum of given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values or {@code 0} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public double sum(int threads, double[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length,
+                block -> Arrays.stream(values, block.from(), block.to()).sum(),
+                stream -> stream.reduce(0.0, Double::sum));
+    }
+
+    /**
+     * Maximum from given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum from given values or empty {@link OptionalInt} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public OptionalInt maximum(int threads, int[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length, block -> Arrays.stream(values, block.from(), block.to()).max(),
+                stream -> stream.filter(OptionalInt::isPresent).mapToInt(OptionalInt::getAsInt).max());
+    }
+
+    /**
+     * Maximum from given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum from given values or empty {@link OptionalLong} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public OptionalLong maximum(int threads, long[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length, block -> Arrays.stream(values, block.from(), block.to()).max(),
+                stream -> stream.filter(OptionalLong::isPresent).mapToLong(OptionalLong::getAsLong).max());
+    }
+
+    /**
+     * Maximum from given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum from given values or empty {@link OptionalDouble} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public OptionalDouble maximum(int threads, double[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length, block -> Arrays.stream(values, block.from(), block.to()).max(),
+                stream -> stream.filter(OptionalDouble::isPresent).mapToDouble(OptionalDouble::getAsDouble).max());
+    }
+
+    /**
+     * Minimum from given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum from given values or empty {@link OptionalInt} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public OptionalInt minimum(int threads, int[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length, block -> Arrays.stream(values, block.from(), block.to()).min(),
+                stream -> stream.filter(OptionalInt::isPresent).mapToInt(OptionalInt::getAsInt).min());
+    }
+
+    /**
+     * Minimum from given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum from given values or empty {@link OptionalLong} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public OptionalLong minimum(int threads, long[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length, block -> Arrays.stream(values, block.from(), block.to()).min(),
+                stream -> stream.filter(OptionalLong::isPresent).mapToLong(OptionalLong::getAsLong).min());
+    }
+
+    /**
+     * Minimum from given values
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum from given values or empty {@link OptionalDouble} if no values specified
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public OptionalDouble minimum(int threads, double[] values) throws InterruptedException {
+        return executeBlocks(threads, values.length, block -> Arrays.stream(values, block.from(), block.to()).min(),
+                stream -> stream.filter(OptionalDouble::isPresent).mapToDouble(OptionalDouble::getAsDouble).min());
+    }
+
+    /**
+     * Counting elements that satisfies to predicate
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return amount of elements that satisfies to predicate
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return (int) (long) executeBlocks(threads, values.length,
+                block -> Arrays.stream(values, block.from(), block.to()).filter(predicate).count(), this::sumAll);
+    }
+
+    /**
+     * Counting elements that satisfies to predicate
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return amount of elements that satisfies to predicate
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return (int) (long) executeBlocks(threads, values.length,
+                block -> Arrays.stream(values, block.from(), block.to()).filter(predicate).count(), this::sumAll);
+    }
+
+    /**
+     * Counting elements that satisfies to predicate
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return amount of elements that satisfies to predicate
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return (int) (long) executeBlocks(threads, values.length,
+                block -> Arrays.stream(values, block.from(), block.to()).filter(predicate).count(), this::sumAll);
+    }
+
+    /**
+     * Maps given values to array of {@code int}
+     * <p>
+     * Every block writes mapped values straight into its part of resulting array
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapper function.
+     * @param <T>     type of elements in list values
+     * @return array of values mapped by function in order of given values
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T> int[] mapToInt(int threads, List<? extends T> values, ToIntFunction<? super T> f) throws InterruptedException {
+        int[] result = new int[values.size()];
+        forEachIndexed(threads, values, (value, index) -> result[index] = f.applyAsInt(value));
+        return result;
+    }
+
+    /**
+     * Maps given values to array of {@code long}
+     * <p>
+     * Every block writes mapped values straight into its part of resulting array
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapper function.
+     * @param <T>     type of elements in list values
+     * @return array of values mapped by function in order of given values
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T> long[] mapToLong(int threads, List<? extends T> values, ToLongFunction<? super T> f) throws InterruptedException {
+        long[] result = new long[values.size()];
+        forEachIndexed(threads, values, (value, index) -> result[index] = f.applyAsLong(value));
+        return result;
+    }
+
+    /**
+     * Maps given values to array of {@code double}
+     * <p>
+     * Every block writes mapped values straight into its part of resulting array
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapper function.
+     * @param <T>     type of elements in list values
+     * @return array of values mapped by function in order of given values
+     * @throws InterruptedException if during executing some threads were interrupted
+     */
+    @Override
+    public <T> double[] mapToDouble(int threads, List<? extends T> values, ToDoubleFunction<? super T> f) throws InterruptedException {
+        double[] result = new double[values.size()];
+        forEachIndexed(threads, values, (value, index) -> result[index] = f.applyAsDouble(value));
+        return result;
+    }
+
+    private Long sumAll(Stream<Long> stream) {
+        return stream.reduce(0L, this::sumAccum);
+    }
+
+    private <T> void forEachIndexed(int threads, List<? extends T> values, ObjIntConsumer<? super T> action)
+            throws InterruptedException {
+        List<? extends T> elements = randomAccess(threads, values);
+        executeBlocks(threads, values.size(), block -> {
+            ListIterator<? extends T> iterator = elements.listIterator(block.from());
+            for (int i = block.from(); i < block.to(); i++) {
+                action.accept(iterator.next(), i);
+            }
+            return null;
+        }, stream -> null);
+    }
+
+    private <E, T, R> R execute(int threads_cnt, List<T> elements, Function<Stream<T>, E> reckoner,
+                                Function<Stream<E>, R> reducer) throws InterruptedException {
+        return execute(threads_cnt, elements, reckoner, reducer, result -> false);
+    }
+
+    private <E, T, R> R execute(int threads_cnt, List<T> elements, Function<Stream<T>, E> reckoner,
+                                Function<Stream<E>, R> reducer, Predicate<E> decisive) throws InterruptedException {
+        List<T> values = randomAccess(threads_cnt, elements);
+        return executeBlocks(threads_cnt, values.size(),
+                block -> reckoner.apply(values.subList(block.from(), block.to()).stream()), reducer, decisive);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> randomAccess(int threads_cnt, List<T> elements) {
+        // otherwise every block walks to its start, single walk of copying is cheaper
+        if (elements instanceof RandomAccess || getBlocksAmount(threads_cnt, elements.size()) < 2) {
+            return elements;
+        }
+        return (List<T>) Arrays.asList(elements.toArray());
+    }
+
+    private <E, R> R executeBlocks(int threads_cnt, int size, Function<Block, E> reckoner,
+                                   Function<Stream<E>, R> reducer) throws InterruptedException {
+        return executeBlocks(threads_cnt, size, reckoner, reducer, result -> false);
+    }
+
+    private <E, R> R executeBlocks(int threads_cnt, int size, Function<Block, E> reckoner,
+                                   Function<Stream<E>, R> reducer, Predicate<E> decisive) throws InterruptedException {
         checkArgs(threads_cnt);
-        int amount = Math.min(threads_cnt, elements.size());
-        if (parallelMapper == null) {
-            return reducer.apply(executeWithoutMapper(getBlocks(elements, amount), reckoner));
+        int amount = Math.min(threads_cnt, size);
+        int blocks = getBlocksAmount(threads_cnt, size);
+        if (blocks > amount) {
+            return executeChunks(amount, getBlocks(size, blocks), reckoner, reducer, decisive);
         }
-        return reducer.apply(parallelMapper.map(reckoner, getBlocks(elements, amount)).stream());
+        return reducer.apply(executeBlocks(getBlocks(size, amount), reckoner, decisive));
+    }
+
+    private int getBlocksAmount(int threads_cnt, int size) {
+        // with grain there may be more chunks than threads, each of them is a separate block
+        int amount = Math.min(threads_cnt, size);
+        long chunks = grain > 0 ? ((long) size + grain - 1) / grain : 0;
+        return chunks > amount ? (int) chunks : amount;
+    }
+
+    private <E, R> R executeChunks(int threads_cnt, List<Block> chunks, Function<Block, E> reckoner,
+                                   Function<Stream<E>, R> reducer, Predicate<E> decisive) throws InterruptedException {
+        AtomicReferenceArray<E> results = new AtomicReferenceArray<>(chunks.size());
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicBoolean decided = new AtomicBoolean();
+        Function<Block, Boolean> worker = ignored -> {
+            for (int i; !decided.get() && (i = cursor.getAndIncrement()) < chunks.size(); ) {
+                E result = reckoner.apply(chunks.get(i));
+                results.set(i, result);
+                if (decisive.test(result)) {
+                    decided.set(true);
+                }
+            }
+            return decided.get();
+        };
+        // results are written into array, workers only report whether answer is known
+        executeBlocks(getBlocks(threads_cnt, threads_cnt), worker, res -> res);
+        return reducer.apply(snapshot(results).stream());
+    }
 
+    private <E> Stream<E> executeBlocks(List<Block> blocks, Function<Block, E> reckoner,
+                                        Predicate<E> decisive) throws InterruptedException {
+        if (parallelMapper == null) {
+            return executeWithoutMapper(blocks, reckoner, decisive);
+        }
+        return parallelMapper.map(reckoner, blocks).stream();
     }
 
-    private <E, T> Stream<E> executeWithoutMapper(List<Stream<T>> blocks, Function<Stream<T>, E> func) throws InterruptedException {
-        List<Thread> threads = new ArrayList<>();
-        List<E> results = new ArrayList<>(Collections.nCopies(blocks.size(), null));
-        int ind = 0;
-        for (Stream<T> block : blocks) {
-            threads.add(getStarted(block, results, ind++, func));
+    private <E> Stream<E> executeWithoutMapper(List<Block> blocks, Function<Block, E> func,
+                                               Predicate<E> decisive) throws InterruptedException {
+        AtomicReferenceArray<E> results = new AtomicReferenceArray<>(blocks.size());
+        CountDownLatch latch = new CountDownLatch(blocks.size());
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        for (int i = executor == null ? 0 : 1; i < blocks.size(); i++) {
+            Runnable task = getTask(blocks, results, i, func, decisive, latch, errors);
+            if (executor == null) {
+                new Thread(task).start();
+            } else {
+                executor.execute(task);
+            }
         }
-        for (Thread thread : threads) {
-            thread.join();
+        if (executor != null && !blocks.isEmpty()) {
+            getTask(blocks, results, 0, func, decisive, latch, errors).run();
         }
-        return results.stream();
+        latch.await();
+        // after decisive result blocks may still run, their later results and exceptions are ignored
+        List<E> snapshot = snapshot(results);
+        if (!errors.isEmpty()) {
+            Throwable exception = errors.poll();
+            errors.forEach(exception::addSuppressed);
+            if (exception instanceof Error error) {
+                throw error;
+            }
+            if (exception instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            // checked exception thrown sneakily by user function
+            throw new RuntimeException(exception);
+        }
+        return snapshot.stream();
     }
 
-    private <E, T> Thread getStarted(Stream<T> stream, List<E> results, int index, Function<Stream<T>, E> func) {
-        Thread thread = new Thread(() -> results.set(index, func.apply(stream)));
-        thread.start();
-        return thread;
+    private <E> List<E> snapshot(AtomicReferenceArray<E> results) {
+        List<E> snapshot = new ArrayList<>(results.length());
+        for (int i = 0; i < results.length(); i++) {
+            snapshot.add(results.get(i));
+        }
+        return snapshot;
     }
 
-    private <E> List<Stream<E>> getBlocks(List<E> elements, int amount) {
-        List<Stream<E>> blocks = new ArrayList<>();
+    private <E> Runnable getTask(List<Block> blocks, AtomicReferenceArray<E> results, int index, Function<Block, E> func,
+                                 Predicate<E> decisive, CountDownLatch latch, Queue<Throwable> errors) {
+        return () -> {
+            try {
+                E result = func.apply(blocks.get(index));
+                results.set(index, result);
+                if (decisive.test(result)) {
+                    // answer is known, release the caller without waiting for other blocks
+                    while (latch.getCount() > 0) {
+                        latch.countDown();
+                    }
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            } finally {
+                latch.countDown();
+            }
+        };
+    }
+
+    private List<Block> getBlocks(int elements, int amount) {
+        List<Block> blocks = new ArrayList<>();
         if (amount == 0) {
             return blocks;
         }
-        int size = elements.size() / amount;
-        int ost = elements.size() % amount;
+        int size = elements / amount;
+        int ost = elements % amount;
         int start = 0;
         for (int i = 0; i < amount; i++) {
             int cap = size + (ost-- > 0 ? 1 : 0);
-            blocks.add(elements.subList(start, start + cap).stream());
+            blocks.add(new Block(start, start + cap));
             start += cap;
         }
         return blocks;
@@ -254,4 +966,7 @@ public class IterativeParallelism implements AdvancedIP {
             throw new IllegalArgumentException("Threads amount must be >=1");
         }
     }
+
+    private record Block(int from, int to) {
+    }
 }
@@ -0,0 +1,52 @@
+package info.kgeorgiy.ja.churakova.concurrent;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Iterative parallelism for operations depending on order of elements.
+ */
+public interface OrderingIP {
+    /**
+     * Sorts values.
+     * Sort is stable: equal elements keep their relative order.
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to sort.
+     * @param comparator value comparator.
+     * @param <T>        value type.
+     * @return list of given values in ascending order
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    <T> List<T> sort(int threads, List<? extends T> values, Comparator<? super T> comparator) throws InterruptedException;
+
+    /**
+     * Returns {@code k} greatest values.
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to get greatest of.
+     * @param k          number of values to return.
+     * @param comparator value comparator.
+     * @param <T>        value type.
+     * @return {@code k} greatest values in descending order or all values, if there are less than {@code k} values
+     * @throws InterruptedException     if executing thread was interrupted.
+     * @throws IllegalArgumentException if {@code k} is negative.
+     */
+    <T> List<T> topK(int threads, List<? extends T> values, int k, Comparator<? super T> comparator)
+            throws InterruptedException;
+
+    /**
+     * Returns {@code k}-th smallest value.
+     *
+     * @param threads    number of concurrent threads.
+     * @param values     values to get value of.
+     * @param k          position of value in sorted values, starting from {@code 1}.
+     * @param comparator value comparator.
+     * @param <T>        value type.
+     * @return value that is {@code k}-th in sorted values
+     * @throws InterruptedException     if executing thread was interrupted.
+     * @throws IllegalArgumentException if {@code k} is not from {@code 1} to number of values.
+     */
+    <T> T kthSmallest(int threads, List<? extends T> values, int k, Comparator<? super T> comparator)
+            throws InterruptedException;
+}
@@ -4,23 +4,84 @@ import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class ParallelMapperImpl implements ParallelMapper {
-    private final List<Thread> threads;
-    private final Deque<JobSlice<?>> queue;
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int MAX_FAIR_CHUNK = 1 << 10;
+    private final Thread[] threads;
+    private final AtomicInteger alive = new AtomicInteger();
+    private final int coreThreads;
+    private final long keepAliveNanos;
+    private final Scheduling scheduling;
+    private final JobQueue queue;
+    private final Set<CompleteChecker<?>> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    private volatile boolean stopped;
+
+    private final LongAdder executedJobs = new LongAdder();
+    private final LongAdder completedCalls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder cancelledCalls = new LongAdder();
+    private final Histogram waitTimes = new Histogram();
+    private final Histogram executionTimes = new Histogram();
+    private final AtomicLongArray busyNanos;
+    private final AtomicLongArray startNanos;
 
     /**
-     * Constructs class with given amount of threads
+     * Constructs class with given amount of threads sharing single job queue
      *
      * @param threads_cnt amount of threads that will do parallel work
      */
     public ParallelMapperImpl(int threads_cnt) {
-        this.threads = new ArrayList<>();
-        this.queue = new ArrayDeque<>();
-        for (int i = 0; i < threads_cnt; i++) {
-            threads.add(getStarted());
+        this(threads_cnt, Scheduling.SHARED_QUEUE);
+    }
+
+    /**
+     * Constructs class with given amount of threads and given way of distributing jobs between them
+     *
+     * @param threads_cnt amount of threads that will do parallel work
+     * @param scheduling  {@link Scheduling} used to distribute jobs between threads
+     */
+    public ParallelMapperImpl(int threads_cnt, Scheduling scheduling) {
+        this(threads_cnt, threads_cnt, 0, TimeUnit.NANOSECONDS, scheduling);
+    }
+
+    /**
+     * Constructs class with elastic amount of threads
+     * <p>
+     * Only {@code core_cnt} threads are started at once. When more jobs are queued than there are threads,
+     * new threads are started up to {@code max_cnt}. Threads over {@code core_cnt} that have no jobs
+     * for {@code keepAlive} are stopped.
+     *
+     * @param core_cnt   amount of threads that are kept even if they have no jobs
+     * @param max_cnt    maximal amount of threads
+     * @param keepAlive  time after which idle thread over {@code core_cnt} is stopped
+     * @param unit       {@link TimeUnit} of {@code keepAlive}
+     * @param scheduling {@link Scheduling} used to distribute jobs between threads
+     */
+    public ParallelMapperImpl(int core_cnt, int max_cnt, long keepAlive, TimeUnit unit, Scheduling scheduling) {
+        if (core_cnt < 0 || max_cnt < Math.max(1, core_cnt)) {
+            throw new IllegalArgumentException("Expected 0 <= core threads <= max threads and max threads >= 1");
         }
+        this.threads = new Thread[max_cnt];
+        this.busyNanos = new AtomicLongArray(max_cnt);
+        this.startNanos = new AtomicLongArray(max_cnt);
+        this.coreThreads = core_cnt;
+        this.keepAliveNanos = core_cnt == max_cnt ? 0 : Math.max(1, unit.toNanos(keepAlive));
+        this.scheduling = scheduling;
+        this.queue = switch (scheduling) {
+            case SHARED_QUEUE -> new SharedQueue();
+            case WORK_STEALING -> new WorkStealingQueue(max_cnt);
+            case FAIR -> new FairQueue();
+        };
+        grow(core_cnt);
     }
 
     /**
@@ -31,27 +92,116 @@ public class ParallelMapperImpl implements ParallelMapper {
      * @param <T>  type of elements in list {@code args}
      * @param <R>  type of elements got by mapping given list
      * @return list of elements got by mapping given list of elements {@code args}
-     * @throws InterruptedException if during executing some threads were interrupted
+     * @throws InterruptedException  if during executing some threads were interrupted,
+     *                               then jobs of this call that are still queued are dropped
+     * @throws IllegalStateException if mapper is closed before mapping finishes
      */
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        final CompleteChecker<R> checker = new CompleteChecker<>(args.size());
-        addJobSlices(getJob(f, args, checker));
-        synchronized (checker) {
-            while (!checker.isCompleted()) {
-                checker.wait();
-            }
+        final CompleteChecker<R> checker = submit(f, args, Thread.currentThread(), null);
+        try {
+            checker.await();
+        } catch (InterruptedException e) {
+            cancel(checker);
+            throw e;
         }
         return checker.getResults(); //or throw exception
     }
 
     /**
-     * Stops all threads. All unfinished mappings are left in undefined state.
+     * Maps function {@code f} over specified {@code args} waiting no longer than given timeout
+     *
+     * @param f       mapper function
+     * @param args    arguments to map
+     * @param timeout maximal time to wait for results
+     * @param unit    {@link TimeUnit} of {@code timeout}
+     * @param <T>     type of elements in list {@code args}
+     * @param <R>     type of elements got by mapping given list
+     * @return list of elements got by mapping given list of elements {@code args}
+     * @throws InterruptedException  if during executing some threads were interrupted
+     * @throws TimeoutException      if mapping isn't finished in time
+     * @throws IllegalStateException if mapper is closed before mapping finishes
+     */
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args, long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        final CompleteChecker<R> checker = submit(f, args, Thread.currentThread(), null);
+        try {
+            if (!checker.await(unit.toNanos(timeout))) {
+                cancel(checker);
+                throw new TimeoutException(String.format("Mapping isn't finished in %d %s", timeout, unit));
+            }
+        } catch (InterruptedException e) {
+            cancel(checker);
+            throw e;
+        }
+        return checker.getResults();
+    }
+
+    /**
+     * Maps function {@code f} over specified {@code args} without blocking calling thread
+     * <p>
+     * Returned future is completed by worker thread that finishes the last job of this call,
+     * so its non-async dependent actions are executed in that worker.
+     * If future is completed before mapping finishes, e.g. {@link CompletableFuture#cancel cancelled}
+     * or timed out, jobs of this call that are still queued are dropped.
+     *
+     * @param f    mapper function
+     * @param args arguments to map
+     * @param <T>  type of elements in list {@code args}
+     * @param <R>  type of elements got by mapping given list
+     * @return future of list of elements got by mapping given list of elements {@code args},
+     * completed exceptionally if some applications of {@code f} failed or mapper is closed before mapping finishes
+     * @throws IllegalStateException if mapper is closed
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        final CompletableFuture<List<R>> future = new CompletableFuture<>();
+        submit(f, args, null, future);
+        return future;
+    }
+
+    /**
+     * Returns snapshot of current state and of statistics collected since construction
+     *
+     * @return {@link Metrics} of this mapper
+     */
+    public Metrics getMetrics() {
+        final long now = System.nanoTime();
+        final double[] busy = new double[threads.length];
+        synchronized (threads) {
+            for (int i = 0; i < threads.length; i++) {
+                if (threads[i] != null) {
+                    busy[i] = (double) busyNanos.get(i) / Math.max(1, now - startNanos.get(i));
+                }
+            }
+        }
+        return new Metrics(queue.size(), active.size(), alive.get(), executedJobs.sum(), completedCalls.sum(),
+                failedCalls.sum(), cancelledCalls.sum(), waitTimes.snapshot(), executionTimes.snapshot(), busy);
+    }
+
+    /**
+     * Stops all threads. Unfinished mappings are failed with {@link IllegalStateException}, their queued jobs are dropped.
+     * <p>
+     * Threads are interrupted and each of them stops as soon as it finishes its current job,
+     * even if mapper function ignores interruption. May be called from dependent action of
+     * {@link #mapAsync} future executed by worker thread, then this thread stops after the action.
      */
     @Override
     public void close() {
-        threads.forEach(Thread::interrupt);
-        threads.forEach(thread -> {
+        closed = true;
+        stopped = true;
+        queue.close();
+        for (CompleteChecker<?> checker : active) {
+            cancel(checker);
+            checker.fail(new IllegalStateException("Mapper was closed before mapping finished"));
+        }
+        final List<Thread> started;
+        synchronized (threads) {
+            // worker can't wait for itself to stop
+            started = Arrays.stream(threads).filter(thread -> thread != null && thread != Thread.currentThread())
+                    .toList();
+        }
+        started.forEach(Thread::interrupt);
+        started.forEach(thread -> {
             while (thread.isAlive()) {
                 try {
                     thread.join();
@@ -62,88 +212,765 @@ public class ParallelMapperImpl implements ParallelMapper {
         });
     }
 
-    private <E, T> List<JobSlice<?>> getJob(Function<? super E, ? extends T> f, List<E> args, CompleteChecker<T> checker) {
+    /**
+     * Stops accepting new calls and waits for already submitted ones, then {@link #close() closes} mapper
+     * <p>
+     * Calls that aren't finished in time are failed as in {@link #close()}.
+     *
+     * @param timeout maximal time to wait for submitted calls
+     * @param unit    {@link TimeUnit} of {@code timeout}
+     * @return {@code true} if all submitted calls finished in time
+     * @throws InterruptedException if calling thread was interrupted while waiting, mapper isn't closed then
+     */
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        closed = true;
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (active) {
+            while (!active.isEmpty()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(active, left);
+            }
+        }
+        boolean drained = active.isEmpty();
+        close();
+        return drained;
+    }
+
+    /**
+     * Maps function {@code f} over specified {@code args} passing results to {@code consumer} as soon as they are ready
+     * <p>
+     * Consumer is called in calling thread. At most about {@code window} elements are mapped but not consumed yet:
+     * new jobs are submitted only when results of previous ones are consumed, so slow consumer doesn't make
+     * workers block and whole list of results is never kept in memory.
+     * If some application of {@code f} fails, exception is thrown when its result would be consumed,
+     * then jobs of this call that are still queued are dropped, as well as when {@code consumer} throws.
+     *
+     * @param f        mapper function
+     * @param args     arguments to map
+     * @param order    {@link ResultOrder} of passing results to consumer
+     * @param window   maximal amount of elements that are mapped but not consumed yet
+     * @param consumer consumer of results
+     * @param <T>      type of elements in list {@code args}
+     * @param <R>      type of elements got by mapping given list
+     * @throws InterruptedException  if calling thread was interrupted
+     * @throws IllegalStateException if mapper is closed before mapping finishes
+     */
+    public <T, R> void mapStreaming(Function<? super T, ? extends R> f, List<? extends T> args, ResultOrder order,
+                                    int window, Consumer<? super R> consumer) throws InterruptedException {
+        final List<? extends T> elements = args instanceof RandomAccess ? args : new ArrayList<>(args);
+        final int chunk = Math.max(1, Math.min(chunkSize(elements.size()), window / threads.length));
+        final int chunks = (elements.size() + chunk - 1) / chunk;
+        final int inFlight = Math.max(1, window / chunk);
+        final BlockingQueue<ChunkResult<R>> done = new LinkedBlockingQueue<>();
+        final CompleteChecker<R> checker = new CompleteChecker<>(0, chunks, null, null) {
+            @Override
+            public void finish() {
+                super.finish();
+                if (getFailure() != null) {
+                    done.add(ChunkResult.failed(getFailure()));
+                }
+            }
+        };
+        final Map<Integer, ChunkResult<R>> pending = new HashMap<>();
+        if (chunks > 0) {
+            register(checker);
+        }
+        int submitted = 0;
+        int consumed = 0;
+        try {
+            while (consumed < chunks) {
+                List<JobSlice<?>> slices = new ArrayList<>();
+                for (; submitted < chunks && submitted - consumed < inFlight; submitted++) {
+                    slices.add(getStreamingSlice(f, elements, submitted, chunk, checker, done));
+                }
+                addJobSlices(slices);
+                ChunkResult<R> result;
+                while ((result = pending.remove(consumed)) == null) {
+                    ChunkResult<R> next = done.take();
+                    if (order == ResultOrder.COMPLETION || next.isFailed()) {
+                        result = next;
+                        break;
+                    }
+                    pending.put(next.index(), next);
+                }
+                consumed++;
+                result.pass(consumer);
+            }
+        } finally {
+            if (consumed < chunks) {
+                cancel(checker);
+            }
+        }
+    }
+
+    private <T, R> JobSlice<R> getStreamingSlice(Function<? super T, ? extends R> f, List<? extends T> args, int index,
+                                                 int chunk, CompleteChecker<R> checker, Queue<ChunkResult<R>> done) {
+        final int from = index * chunk;
+        final int to = Math.min(from + chunk, args.size());
+        return new JobSlice<>(() -> {
+            List<R> values = new ArrayList<>(to - from);
+            List<Throwable> errors = new ArrayList<>();
+            for (int i = from; i < to && !checker.cancelled; i++) {
+                try {
+                    values.add(f.apply(args.get(i)));
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+            done.add(new ChunkResult<>(index, values, errors));
+        }, checker);
+    }
+
+    private <T, R> CompleteChecker<R> submit(Function<? super T, ? extends R> f, List<? extends T> args,
+                                             Thread waiter, CompletableFuture<List<R>> future) {
+        final List<? extends T> elements = args instanceof RandomAccess ? args : new ArrayList<>(args);
+        final int chunk = chunkSize(elements.size());
+        final CompleteChecker<R> checker = new CompleteChecker<>(elements.size(), (elements.size() + chunk - 1) / chunk,
+                waiter, future);
+        if (elements.isEmpty()) {
+            checker.finish();
+            return checker;
+        }
+        register(checker);
+        if (future != null) {
+            future.whenComplete((results, e) -> {
+                if (!checker.isCompleted()) {
+                    cancel(checker);
+                }
+            });
+        }
+        addJobSlices(getJob(f, elements, chunk, checker));
+        return checker;
+    }
+
+    private void register(CompleteChecker<?> checker) {
+        active.add(checker);
+        if (closed) {
+            deactivate(checker);
+            throw new IllegalStateException("Mapper is closed");
+        }
+    }
+
+    private boolean deactivate(CompleteChecker<?> checker) {
+        if (!active.remove(checker)) {
+            return false;
+        }
+        if (active.isEmpty()) {
+            // wakes up close waiting for submitted calls
+            synchronized (active) {
+                active.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    private void cancel(CompleteChecker<?> checker) {
+        checker.cancelled = true;
+        if (deactivate(checker)) {
+            cancelledCalls.increment();
+        }
+        queue.removeAll(checker);
+    }
+
+    private int chunkSize(int size) {
+        int chunk = Math.max(1, size / (threads.length * CHUNKS_PER_WORKER));
+        // short jobs let workers switch between calls often enough
+        return scheduling == Scheduling.FAIR ? Math.min(chunk, MAX_FAIR_CHUNK) : chunk;
+    }
+
+    private <E, T> List<JobSlice<?>> getJob(Function<? super E, ? extends T> f, List<E> args, int chunk,
+                                            CompleteChecker<T> checker) {
         List<JobSlice<?>> job = new ArrayList<>();
-        int i = 0;
-        for (E arg : args) {
-            final int index = i++;
-            job.add(new JobSlice<>(() -> checker.results.set(index, f.apply(arg)), checker));
+        for (int start = 0; start < args.size(); start += chunk) {
+            final int from = start;
+            final int to = Math.min(start + chunk, args.size());
+            job.add(new JobSlice<>(() -> {
+                for (int i = from; i < to && !checker.cancelled; i++) {
+                    try {
+                        checker.results[i] = f.apply(args.get(i));
+                    } catch (Throwable e) {
+                        checker.errors.add(e);
+                    }
+                }
+            }, checker));
         }
         return job;
     }
 
     private void addJobSlices(List<JobSlice<?>> slices) {
-        synchronized (queue) {
-            queue.addAll(slices);
-            queue.notifyAll();
+        final long now = System.nanoTime();
+        for (JobSlice<?> slice : slices) {
+            slice.queued = now;
+        }
+        int queued = queue.addAll(slices);
+        if (queued > alive.get() && alive.get() < threads.length) {
+            grow(queued);
+        }
+    }
+
+    private void grow(int needed) {
+        synchronized (threads) {
+            for (int i = 0; i < threads.length && alive.get() < needed && !closed; i++) {
+                if (threads[i] == null) {
+                    alive.incrementAndGet();
+                    busyNanos.set(i, 0);
+                    startNanos.set(i, System.nanoTime());
+                    threads[i] = getStarted(i);
+                }
+            }
         }
     }
 
-    private Thread getStarted() {
+    private boolean retire(int worker) {
+        // under the same lock as grow, so thread started for jobs queued meanwhile isn't skipped by busy slot
+        synchronized (threads) {
+            if (alive.get() <= coreThreads) {
+                return false;
+            }
+            alive.decrementAndGet();
+            // jobs queued while count was decreasing may have seen enough threads and started none
+            if (queue.size() > 0) {
+                alive.incrementAndGet();
+                return false;
+            }
+            threads[worker] = null;
+            return true;
+        }
+    }
+
+    private void release(int worker) {
+        synchronized (threads) {
+            // slot of retired thread is already free and may be taken by new thread
+            if (threads[worker] != Thread.currentThread()) {
+                return;
+            }
+            threads[worker] = null;
+            alive.decrementAndGet();
+        }
+        // thread stopped by unexpected error, its jobs still need workers
+        if (!stopped) {
+            grow(Math.max(coreThreads, Math.min(queue.size(), threads.length)));
+        }
+    }
+
+    private Thread getStarted(int worker) {
         Thread thread = new Thread(() -> {
             try {
-                while (!Thread.interrupted()) {
-                    launchJob(extractSubtask());
+                long previous = startNanos.get(worker);
+                while (!stopped) {
+                    try {
+                        JobSlice<?> slice = queue.take(worker, keepAliveNanos);
+                        if (slice != null) {
+                            previous = launchJob(worker, slice, previous);
+                        } else if (retire(worker)) {
+                            return;
+                        }
+                    } catch (InterruptedException ignored) {
+                        // interrupted by close or by mapper function, loop checks whether mapper is stopped
+                    }
                 }
-            } catch (InterruptedException ignored) {
+            } finally {
+                release(worker);
             }
         });
         thread.start();
         return thread;
     }
 
-    private void launchJob(JobSlice<?> slice) {
+    private long launchJob(int worker, JobSlice<?> slice, long previous) {
+        // slice queued before previous job ended was taken without waiting, so that end is start of this job
+        final long start = slice.queued - previous <= 0 ? previous : System.nanoTime();
+        long end = start;
+        waitTimes.add(start - slice.queued);
         try {
-            slice.subtask.run();
-        } catch (RuntimeException e) {
-            synchronized (slice.checker) {
-                slice.checker.errors.addSuppressed(e);
+            if (!slice.checker.cancelled) {
+                slice.subtask.run();
+            }
+        } catch (Throwable e) {
+            slice.checker.errors.add(e);
+        } finally {
+            end = System.nanoTime();
+            final long spent = end - start;
+            executionTimes.add(spent);
+            busyNanos.addAndGet(worker, spent);
+            executedJobs.increment();
+            if (slice.checker.complete()) {
+                // call is counted by whoever removes it from active, so cancelled call isn't counted twice
+                if (deactivate(slice.checker)) {
+                    boolean failed = !slice.checker.errors.isEmpty() || slice.checker.getFailure() != null;
+                    (failed ? failedCalls : completedCalls).increment();
+                }
+                // caller is released after counting, so metrics it takes right after include its call
+                slice.checker.finish();
             }
         }
-        synchronized (slice.checker) {
-            slice.checker.completed++;
-            if (slice.checker.isCompleted()) {
-                slice.checker.notify();
+        return end;
+    }
+
+    /**
+     * Strategies of distributing jobs between worker threads
+     */
+    public enum Scheduling {
+        /**
+         * All workers take jobs from single queue guarded by one monitor
+         */
+        SHARED_QUEUE,
+        /**
+         * Every worker has own deque and steals jobs from other deques when own one is empty
+         */
+        WORK_STEALING,
+        /**
+         * Every call has own queue, workers take jobs from these queues in round-robin order,
+         * so large call doesn't delay small calls submitted after it
+         */
+        FAIR
+    }
+
+    /**
+     * Orders in which {@link #mapStreaming streaming mapping} passes results to consumer
+     */
+    public enum ResultOrder {
+        /**
+         * Results are passed in order of arguments
+         */
+        INPUT,
+        /**
+         * Results of each job are passed as soon as job completes
+         */
+        COMPLETION
+    }
+
+    /**
+     * Snapshot of {@link ParallelMapperImpl} state. Here job is a contiguous part of arguments of one call
+     * executed by one thread.
+     *
+     * @param queueLength    amount of jobs waiting to be executed
+     * @param activeCalls    amount of unfinished calls
+     * @param workers        amount of running threads
+     * @param executedJobs   amount of executed jobs
+     * @param completedCalls amount of calls finished without errors
+     * @param failedCalls    amount of calls finished with errors of mapper function
+     * @param cancelledCalls amount of calls cancelled, timed out, interrupted or failed by {@link #close()}
+     * @param waitTimes      histogram of time jobs spent in queue: {@code i}-th element is amount of jobs
+     *                       that waited from {@code 2^i} to {@code 2^(i+1)} nanoseconds
+     * @param executionTimes histogram of time jobs were executed, in the same format as {@code waitTimes}
+     * @param busyRatio      for every thread slot part of its lifetime spent executing jobs,
+     *                       {@code 0} for slots without running thread
+     */
+    public record Metrics(int queueLength, int activeCalls, int workers, long executedJobs,
+                          long completedCalls, long failedCalls, long cancelledCalls,
+                          long[] waitTimes, long[] executionTimes, double[] busyRatio) {
+        /**
+         * Estimates quantile of given histogram
+         *
+         * @param histogram {@link #waitTimes} or {@link #executionTimes}
+         * @param quantile  quantile from {@code 0} to {@code 1}
+         * @return upper bound in nanoseconds of bucket containing given quantile, {@code 0} for empty histogram
+         */
+        public static long quantile(long[] histogram, double quantile) {
+            final long total = Arrays.stream(histogram).sum();
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen > 0 && seen >= quantile * total) {
+                    return i + 1 < Long.SIZE - 1 ? 1L << (i + 1) : Long.MAX_VALUE;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE - 1);
+
+        void add(long nanos) {
+            buckets.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+        }
+
+        long[] snapshot() {
+            final long[] result = new long[buckets.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = buckets.get(i);
+            }
+            return result;
+        }
+    }
+
+    private interface JobQueue {
+        /**
+         * @return amount of queued jobs after adding
+         */
+        int addAll(List<JobSlice<?>> slices);
+
+        void removeAll(CompleteChecker<?> checker);
+
+        int size();
+
+        /**
+         * @return job or {@code null} if no job was queued during {@code nanos} or queue is closed,
+         * non-positive {@code nanos} means forever
+         */
+        JobSlice<?> take(int worker, long nanos) throws InterruptedException;
+
+        /**
+         * Wakes up all waiting workers, {@link #take} returns {@code null} after that
+         */
+        void close();
+    }
+
+    private static boolean waitUntil(Object monitor, long nanos, long deadline) throws InterruptedException {
+        if (nanos <= 0) {
+            monitor.wait();
+            return true;
+        }
+        long left = deadline - System.nanoTime();
+        if (left <= 0) {
+            return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(monitor, left);
+        return true;
+    }
+
+    private static class SharedQueue implements JobQueue {
+        private final Deque<JobSlice<?>> queue = new ArrayDeque<>();
+        private boolean closed;
+
+        @Override
+        public int addAll(List<JobSlice<?>> slices) {
+            synchronized (queue) {
+                queue.addAll(slices);
+                queue.notifyAll();
+                return queue.size();
+            }
+        }
+
+        @Override
+        public void removeAll(CompleteChecker<?> checker) {
+            synchronized (queue) {
+                queue.removeIf(slice -> slice.checker == checker);
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (queue) {
+                return queue.size();
+            }
+        }
+
+        @Override
+        public JobSlice<?> take(int worker, long nanos) throws InterruptedException {
+            final long deadline = nanos > 0 ? System.nanoTime() + nanos : 0;
+            synchronized (queue) {
+                while (queue.isEmpty() && !closed) {
+                    if (!waitUntil(queue, nanos, deadline)) {
+                        return null;
+                    }
+                }
+                return closed ? null : queue.poll();
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (queue) {
+                closed = true;
+                queue.notifyAll();
             }
         }
     }
 
-    private JobSlice<?> extractSubtask() throws InterruptedException {
-        synchronized (queue) {
-            while (queue.isEmpty()) {
-                queue.wait();
+    private static class FairQueue implements JobQueue {
+        private final Map<CompleteChecker<?>, Deque<JobSlice<?>>> calls = new HashMap<>();
+        private final Deque<Deque<JobSlice<?>>> turns = new ArrayDeque<>();
+        private int size;
+        private boolean closed;
+
+        @Override
+        public synchronized int addAll(List<JobSlice<?>> slices) {
+            for (JobSlice<?> slice : slices) {
+                calls.computeIfAbsent(slice.checker, checker -> {
+                    Deque<JobSlice<?>> call = new ArrayDeque<>();
+                    turns.addLast(call);
+                    return call;
+                }).addLast(slice);
+            }
+            size += slices.size();
+            notifyAll();
+            return size;
+        }
+
+        @Override
+        public synchronized void removeAll(CompleteChecker<?> checker) {
+            Deque<JobSlice<?>> call = calls.remove(checker);
+            if (call != null) {
+                turns.remove(call);
+                size -= call.size();
+            }
+        }
+
+        @Override
+        public synchronized int size() {
+            return size;
+        }
+
+        @Override
+        public synchronized JobSlice<?> take(int worker, long nanos) throws InterruptedException {
+            final long deadline = nanos > 0 ? System.nanoTime() + nanos : 0;
+            while (turns.isEmpty() && !closed) {
+                if (!waitUntil(this, nanos, deadline)) {
+                    return null;
+                }
+            }
+            if (closed) {
+                return null;
+            }
+            size--;
+            Deque<JobSlice<?>> call = turns.pollFirst();
+            JobSlice<?> slice = call.pollFirst();
+            if (call.isEmpty()) {
+                calls.remove(slice.checker);
+            } else {
+                turns.addLast(call);
+            }
+            return slice;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    private static class WorkStealingQueue implements JobQueue {
+        private final List<Deque<JobSlice<?>>> deques;
+        private final Queue<Thread> idle;
+        private final AtomicInteger nextDeque;
+        private final AtomicInteger size;
+        private volatile boolean closed;
+
+        public WorkStealingQueue(int workers) {
+            this.deques = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                deques.add(new ConcurrentLinkedDeque<>());
+            }
+            this.idle = new ConcurrentLinkedQueue<>();
+            this.nextDeque = new AtomicInteger();
+            this.size = new AtomicInteger();
+        }
+
+        @Override
+        public int addAll(List<JobSlice<?>> slices) {
+            int queued = size.addAndGet(slices.size());
+            int parts = Math.min(deques.size(), slices.size());
+            int first = nextDeque.getAndIncrement();
+            int start = 0;
+            for (int i = 0; i < parts; i++) {
+                int end = start + (slices.size() - start) / (parts - i);
+                deques.get(Math.floorMod(first + i, deques.size())).addAll(slices.subList(start, end));
+                start = end;
+            }
+            for (int i = 0; i < parts; i++) {
+                Thread thread = idle.poll();
+                if (thread == null) {
+                    break;
+                }
+                LockSupport.unpark(thread);
+            }
+            return queued;
+        }
+
+        @Override
+        public void removeAll(CompleteChecker<?> checker) {
+            for (Deque<JobSlice<?>> deque : deques) {
+                for (JobSlice<?> slice : deque) {
+                    // worker may take the slice concurrently, only the one that actually unlinks it counts it
+                    if (slice.checker == checker && deque.remove(slice)) {
+                        size.decrementAndGet();
+                    }
+                }
             }
-            return queue.poll();
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+
+        @Override
+        public JobSlice<?> take(int worker, long nanos) throws InterruptedException {
+            final long deadline = nanos > 0 ? System.nanoTime() + nanos : 0;
+            Thread current = Thread.currentThread();
+            while (!closed) {
+                JobSlice<?> slice = pollOrSteal(worker);
+                if (slice != null) {
+                    return slice;
+                }
+                idle.add(current);
+                // slices added before registration are not followed by unpark, so look once more
+                slice = pollOrSteal(worker);
+                if (slice != null || closed) {
+                    idle.remove(current);
+                    return slice;
+                }
+                if (nanos <= 0) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, deadline - System.nanoTime());
+                }
+                idle.remove(current);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (nanos > 0 && deadline - System.nanoTime() <= 0) {
+                    return pollOrSteal(worker);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            idle.forEach(LockSupport::unpark);
+        }
+
+        private JobSlice<?> pollOrSteal(int worker) {
+            JobSlice<?> slice = deques.get(worker).pollFirst();
+            for (int i = 1; slice == null && i < deques.size(); i++) {
+                slice = deques.get((worker + i) % deques.size()).pollLast();
+            }
+            if (slice != null) {
+                size.decrementAndGet();
+            }
+            return slice;
+        }
+    }
+
+    private static void throwErrors(Collection<? extends Throwable> errors) {
+        if (!errors.isEmpty()) {
+            RuntimeException exception = new RuntimeException("Unable to reckoner results because of occur errors");
+            errors.forEach(exception::addSuppressed);
+            throw exception;
         }
     }
 
     private static class CompleteChecker<R> {
-        private int completed;
-        private final int toComplete;
-        private final List<R> results;
-        private final RuntimeException errors;
+        private final AtomicInteger remaining;
+        private final Thread waiter;
+        private final CompletableFuture<List<R>> future;
+        private final Object[] results;
+        private final Queue<Throwable> errors;
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private volatile RuntimeException failure;
 
-        public CompleteChecker(int toComplete) {
-            this.toComplete = toComplete;
-            this.results = new ArrayList<>(Collections.nCopies(toComplete, null));
-            errors = new RuntimeException("Unable to reckoner results because of occur errors");
+        public CompleteChecker(int size, int toComplete, Thread waiter, CompletableFuture<List<R>> future) {
+            this.remaining = new AtomicInteger(toComplete);
+            this.waiter = waiter;
+            this.future = future;
+            this.results = new Object[size];
+            this.errors = new ConcurrentLinkedQueue<>();
         }
 
         public boolean isCompleted() {
-            return completed == toComplete;
+            return finished;
+        }
+
+        /**
+         * @return {@code true} for the last job of call, then {@link #finish()} should be called
+         */
+        public boolean complete() {
+            return remaining.decrementAndGet() == 0;
         }
 
+        public void fail(RuntimeException e) {
+            failure = e;
+            cancelled = true;
+            finish();
+        }
+
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        public void finish() {
+            finished = true;
+            if (waiter != null) {
+                // waiting on monitor is woken up faster than parked thread, see ParallelMapperBenchmark
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+            if (future != null) {
+                try {
+                    future.complete(getResults());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+
+        public synchronized void await() throws InterruptedException {
+            while (!isCompleted()) {
+                wait();
+            }
+        }
+
+        public synchronized boolean await(long nanos) throws InterruptedException {
+            final long deadline = System.nanoTime() + nanos;
+            while (!isCompleted()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
         public List<R> getResults() {
-            if (errors.getSuppressed().length != 0) {
-                throw errors;
+            if (failure != null) {
+                throw failure;
+            }
+            throwErrors(errors);
+            return (List<R>) Arrays.asList(results);
+        }
+    }
+
+    private record ChunkResult<R>(int index, List<R> values, List<Throwable> errors, RuntimeException failure) {
+        private static final int FAILED = -1;
+
+        public ChunkResult(int index, List<R> values, List<Throwable> errors) {
+            this(index, values, errors, null);
+        }
+
+        public static <R> ChunkResult<R> failed(RuntimeException failure) {
+            return new ChunkResult<>(FAILED, List.of(), List.of(), failure);
+        }
+
+        public boolean isFailed() {
+            return failure != null;
+        }
+
+        public void pass(Consumer<? super R> consumer) {
+            if (isFailed()) {
+                throw failure;
             }
-            return results;
+            throwErrors(errors);
+            values.forEach(consumer);
         }
     }
 
     private static class JobSlice<R> {
         final Runnable subtask;
         final CompleteChecker<R> checker;
+        long queued;
 
         public JobSlice(Runnable subtask, CompleteChecker<R> counter) {
             this.subtask = subtask;
@@ -0,0 +1,178 @@
+package info.kgeorgiy.ja.churakova.concurrent;
+
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Iterative parallelism over primitive arrays.
+ * <p>
+ * Elements are processed without boxing, only per-block results may be boxed.
+ */
+public interface PrimitiveIP {
+    /**
+     * Returns sum of values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values or {@code 0}, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    long sum(int threads, int[] values) throws InterruptedException;
+
+    /**
+     * Returns sum of values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values or {@code 0}, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    long sum(int threads, long[] values) throws InterruptedException;
+
+    /**
+     * Returns sum of values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values or {@code 0}, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    double sum(int threads, double[] values) throws InterruptedException;
+
+    /**
+     * Returns maximum value.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values or empty optional, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    OptionalInt maximum(int threads, int[] values) throws InterruptedException;
+
+    /**
+     * Returns maximum value.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values or empty optional, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    OptionalLong maximum(int threads, long[] values) throws InterruptedException;
+
+    /**
+     * Returns maximum value.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values or empty optional, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    OptionalDouble maximum(int threads, double[] values) throws InterruptedException;
+
+    /**
+     * Returns minimum value.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values or empty optional, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    OptionalInt minimum(int threads, int[] values) throws InterruptedException;
+
+    /**
+     * Returns minimum value.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values or empty optional, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    OptionalLong minimum(int threads, long[] values) throws InterruptedException;
+
+    /**
+     * Returns minimum value.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values or empty optional, if no values are given
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    OptionalDouble minimum(int threads, double[] values) throws InterruptedException;
+
+    /**
+     * Returns number of values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException;
+
+    /**
+     * Returns number of values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException;
+
+    /**
+     * Returns number of values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException;
+
+    /**
+     * Maps values to array of {@code int}.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapper function.
+     * @param <T>     value type.
+     * @return array of mapped values in order of given values
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    <T> int[] mapToInt(int threads, List<? extends T> values, ToIntFunction<? super T> f) throws InterruptedException;
+
+    /**
+     * Maps values to array of {@code long}.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapper function.
+     * @param <T>     value type.
+     * @return array of mapped values in order of given values
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    <T> long[] mapToLong(int threads, List<? extends T> values, ToLongFunction<? super T> f) throws InterruptedException;
+
+    /**
+     * Maps values to array of {@code double}.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapper function.
+     * @param <T>     value type.
+     * @return array of mapped values in order of given values
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    <T> double[] mapToDouble(int threads, List<? extends T> values, ToDoubleFunction<? super T> f) throws InterruptedException;
+}
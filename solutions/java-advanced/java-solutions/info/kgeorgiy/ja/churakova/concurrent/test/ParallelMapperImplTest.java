@@ -0,0 +1,165 @@
+package info.kgeorgiy.ja.churakova.concurrent.test;
+
+import info.kgeorgiy.ja.churakova.concurrent.ParallelMapperImpl;
+import info.kgeorgiy.ja.churakova.concurrent.ParallelMapperImpl.Scheduling;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ParallelMapperImplTest {
+    private static final int THREADS = 4;
+    private static final long TIMEOUT = 10;
+    private static final List<Integer> VALUES = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+    public static void main(String[] args) {
+        JUnitCore jUnit = new JUnitCore();
+        jUnit.addListener(new TextListener(System.out));
+        System.exit(jUnit.run(ParallelMapperImplTest.class).wasSuccessful() ? 0 : 1);
+    }
+
+    @Test
+    public void test1_error() throws InterruptedException, TimeoutException {
+        for (Scheduling scheduling : Scheduling.values()) {
+            ParallelMapperImpl mapper = new ParallelMapperImpl(THREADS, scheduling);
+            try {
+                for (int i = 0; i < THREADS + 1; i++) {
+                    try {
+                        mapper.map(value -> {
+                            if (value == 50) {
+                                throw new AssertionError("Value " + value);
+                            }
+                            return value;
+                        }, VALUES, TIMEOUT, TimeUnit.SECONDS);
+                        Assert.fail(scheduling + ": error of mapper function should be reported");
+                    } catch (RuntimeException e) {
+                        Assert.assertEquals(scheduling + ": error of mapper function should be suppressed",
+                                AssertionError.class, e.getSuppressed()[0].getClass());
+                    }
+                }
+                Assert.assertEquals(scheduling + ": mapper should work after errors",
+                        VALUES, mapper.map(value -> value, VALUES, TIMEOUT, TimeUnit.SECONDS));
+                Assert.assertEquals(scheduling + ": workers shouldn't be lost", THREADS, mapper.getMetrics().workers());
+                Assert.assertEquals(scheduling + ": failed calls", THREADS + 1, mapper.getMetrics().failedCalls());
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    @Test
+    public void test2_closeDrains() throws InterruptedException, ExecutionException {
+        for (Scheduling scheduling : Scheduling.values()) {
+            ParallelMapperImpl mapper = new ParallelMapperImpl(THREADS, scheduling);
+            CompletableFuture<List<Integer>> future = mapper.mapAsync(ParallelMapperImplTest::sleep, VALUES);
+            Assert.assertTrue(scheduling + ": submitted call should finish in time",
+                    mapper.close(TIMEOUT, TimeUnit.SECONDS));
+            Assert.assertEquals(scheduling + ": results of drained call", VALUES, future.get());
+
+            ParallelMapperImpl blocked = new ParallelMapperImpl(THREADS, scheduling);
+            CountDownLatch latch = new CountDownLatch(1);
+            CompletableFuture<List<Integer>> waiting = blocked.mapAsync(value -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value;
+            }, VALUES);
+            long start = System.nanoTime();
+            Assert.assertFalse(scheduling + ": blocked call shouldn't finish",
+                    blocked.close(100, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(scheduling + ": close should wait for timeout",
+                    System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            Assert.assertTrue(scheduling + ": blocked call should be failed", waiting.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void test3_cancelledQueueLength() throws InterruptedException, ExecutionException {
+        List<Integer> values = IntStream.range(0, 2000).boxed().collect(Collectors.toList());
+        for (Scheduling scheduling : Scheduling.values()) {
+            ParallelMapperImpl mapper = new ParallelMapperImpl(THREADS, scheduling);
+            try {
+                List<CompletableFuture<List<Integer>>> futures = new ArrayList<>();
+                for (int i = 0; i < 3000; i++) {
+                    CompletableFuture<List<Integer>> future = mapper.mapAsync(value -> value + 1, values);
+                    if (i % 2 == 0) {
+                        // races with workers taking jobs of this call
+                        future.cancel(false);
+                    } else {
+                        futures.add(future);
+                    }
+                }
+                for (CompletableFuture<List<Integer>> future : futures) {
+                    future.get();
+                }
+                Assert.assertEquals(scheduling + ": no jobs should be queued", 0, mapper.getMetrics().queueLength());
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    @Test
+    public void test4_retire() throws InterruptedException, TimeoutException {
+        for (Scheduling scheduling : Scheduling.values()) {
+            // the only worker retires right after every call, so next call races with its retirement
+            ParallelMapperImpl mapper = new ParallelMapperImpl(0, 1, 1, TimeUnit.MICROSECONDS, scheduling);
+            try {
+                for (int i = 0; i < 20000; i++) {
+                    Assert.assertEquals(scheduling + ": result of call " + i,
+                            List.of(i), mapper.map(value -> value, List.of(i), TIMEOUT, TimeUnit.SECONDS));
+                }
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    @Test
+    public void test5_metrics() throws InterruptedException {
+        for (Scheduling scheduling : Scheduling.values()) {
+            ParallelMapperImpl mapper = new ParallelMapperImpl(THREADS, scheduling);
+            try {
+                for (int i = 1; i <= 5000; i++) {
+                    try {
+                        mapper.map(value -> {
+                            if (value == 2) {
+                                throw new IllegalStateException("Value " + value);
+                            }
+                            return value;
+                        }, List.of(1, 2, 3, 4));
+                        Assert.fail(scheduling + ": exception of mapper function should be reported");
+                    } catch (RuntimeException ignored) {
+                    }
+                    // metrics taken right after call returns should already include it
+                    ParallelMapperImpl.Metrics metrics = mapper.getMetrics();
+                    Assert.assertEquals(scheduling + ": active calls after call " + i, 0, metrics.activeCalls());
+                    Assert.assertEquals(scheduling + ": failed calls after call " + i, i, metrics.failedCalls());
+                }
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    private static Integer sleep(Integer value) {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
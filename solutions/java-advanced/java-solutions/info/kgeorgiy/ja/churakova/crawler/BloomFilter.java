@@ -0,0 +1,105 @@
+package info.kgeorgiy.ja.churakova.crawler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * {@link VisitedSet} that checks urls in Bloom filter of fixed size in front of exact set.
+ * <p>
+ * Url that sets a new bit of filter is certainly new. Otherwise filter may be wrong, probability of that
+ * is about given one while no more than expected amount of urls is added, so exact set decides.
+ */
+class BloomFilter implements VisitedSet {
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+    private static final int LOCKS = 64;
+
+    private final AtomicLongArray bits;
+    private final long size;
+    private final int hashes;
+    private final Object[] locks = new Object[LOCKS];
+    private final VisitedSet exact;
+
+    /**
+     * Constructs empty filter.
+     *
+     * @param expected          expected amount of urls.
+     * @param falsePositiveRate acceptable probability to consider new url as visited.
+     * @param exact             exact set of visited urls, every url is added to it.
+     */
+    BloomFilter(long expected, double falsePositiveRate, VisitedSet exact) {
+        checkArgs(expected, falsePositiveRate);
+        double ln2 = Math.log(2);
+        this.size = Math.max(Long.SIZE, Math.min(MAX_BITS,
+                (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2))));
+        this.hashes = Math.max(1, (int) Math.round((double) size / expected * ln2));
+        this.bits = new AtomicLongArray((int) ((size + Long.SIZE - 1) / Long.SIZE));
+        this.exact = exact;
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns factory of empty filters in front of {@link VisitedSet#concurrent() exact sets},
+     * checking arguments at once.
+     *
+     * @param expected          expected amount of urls.
+     * @param falsePositiveRate acceptable probability to consider new url as visited.
+     * @return factory of empty filters.
+     */
+    static Supplier<VisitedSet> factory(long expected, double falsePositiveRate) {
+        checkArgs(expected, falsePositiveRate);
+        return () -> new BloomFilter(expected, falsePositiveRate, VisitedSet.concurrent());
+    }
+
+    private static void checkArgs(long expected, double falsePositiveRate) {
+        if (expected <= 0 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Expected positive amount of urls and probability from 0 to 1");
+        }
+    }
+
+    @Override
+    public boolean add(String url) {
+        long hash = hash(url);
+        long h1 = hash & 0xFFFFFFFFL;
+        long h2 = hash >>> 32;
+        boolean added = false;
+        // same url always takes the same lock, so only one of concurrent additions sees its new bits
+        synchronized (locks[(int) Math.floorMod(hash, (long) LOCKS)]) {
+            for (int i = 0; i < hashes; i++) {
+                added |= set(Math.floorMod(h1 + i * h2, size));
+            }
+        }
+        if (added) {
+            // certainly new url, exact set only records it
+            exact.add(url);
+            return true;
+        }
+        // all bits were already set, filter may be wrong, so exact set decides
+        return exact.add(url);
+    }
+
+    private boolean set(long bit) {
+        int index = (int) (bit / Long.SIZE);
+        long mask = 1L << (bit % Long.SIZE);
+        long word;
+        do {
+            word = bits.get(index);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(index, word, word | mask));
+        return true;
+    }
+
+    // 64-bit FNV-1a followed by murmur finalizer, String.hashCode is too weak to derive several hashes
+    private static long hash(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,179 @@
+package info.kgeorgiy.ja.churakova.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only log of crawl events, allowing to resume crawl after restart.
+ * <p>
+ * Every entry is a line of entry type and escaped value. Line that isn't finished by line separator,
+ * e.g. because of crash during writing, is dropped on opening.
+ */
+class CrawlJournal implements Closeable {
+    /**
+     * Crawl start, value is depth and url separated by space.
+     */
+    static final char CRAWL = 'C';
+    /**
+     * Level start, value is depth of level.
+     */
+    static final char LEVEL = 'S';
+    /**
+     * Url found for the first time, it belongs to the next level.
+     */
+    static final char FOUND = 'N';
+    /**
+     * Url downloaded.
+     */
+    static final char DOWNLOADED = 'D';
+    /**
+     * Links of url extracted.
+     */
+    static final char EXTRACTED = 'X';
+    /**
+     * Url failed, value is url and message of error separated by tab.
+     */
+    static final char FAILED = 'E';
+
+    private final Path file;
+    private final FileChannel channel;
+
+    /**
+     * Opens journal, creating file if it doesn't exist.
+     *
+     * @param file file of journal.
+     * @throws IOException if an error occurred.
+     */
+    CrawlJournal(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long[] valid = {0};
+        read(0, channel.size(), entry -> valid[0] = entry.end());
+        channel.truncate(valid[0]);
+        channel.position(valid[0]);
+    }
+
+    /**
+     * Appends entry.
+     *
+     * @param type  type of entry.
+     * @param value value of entry.
+     * @throws IOException if an error occurred.
+     */
+    synchronized void write(char type, String value) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((type + escape(value) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+    }
+
+    /**
+     * Returns offset of the end of the last entry.
+     *
+     * @return offset in bytes.
+     * @throws IOException if an error occurred.
+     */
+    synchronized long position() throws IOException {
+        return channel.position();
+    }
+
+    /**
+     * Reads entries one by one without keeping them in memory.
+     *
+     * @param from     offset of the first entry.
+     * @param to       offset after which entries are not read.
+     * @param consumer consumer of entries.
+     * @throws IOException if an error occurred.
+     */
+    void read(long from, long to, EntryConsumer consumer) throws IOException {
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = new BufferedInputStream(Channels.newInputStream(reader.position(from)))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = from;
+            for (int b; position < to && (b = in.read()) >= 0; position++) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString(StandardCharsets.UTF_8);
+                line.reset();
+                if (!text.isEmpty()) {
+                    consumer.accept(new Entry(text.charAt(0), unescape(text.substring(1)), position + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes file of journal.
+     *
+     * @throws IOException if an error occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = switch (value.charAt(++i)) {
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> value.charAt(i);
+                };
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Entry of journal.
+     *
+     * @param type  type of entry.
+     * @param value value of entry.
+     * @param end   offset after the entry.
+     */
+    record Entry(char type, String value, long end) {
+    }
+
+    /**
+     * Consumer of entries that may fail.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        /**
+         * Processes entry.
+         *
+         * @param entry entry of journal.
+         * @throws IOException if an error occurred.
+         */
+        void accept(Entry entry) throws IOException;
+    }
+}
@@ -0,0 +1,269 @@
+package info.kgeorgiy.ja.churakova.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * {@link Downloader} that doesn't download and extract links of page again, if page isn't changed.
+ * <p>
+ * For every page with known validator, e.g. ETag, links of the page are stored on disk with validator.
+ * When validator of page is the same as stored one, stored links are returned without downloading.
+ * The most recently used pages are also kept in memory, no more than given amount of bytes.
+ */
+public class RevalidatingDownloader implements Downloader {
+    private static final int MAGIC = 0x52444C31;
+    private static final int CONNECT_TIMEOUT = 30_000;
+    private static final int READ_TIMEOUT = 30_000;
+
+    private final Downloader downloader;
+    private final Path directory;
+    private final Revalidator revalidator;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Page> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Constructs downloader that gets validators of pages by HTTP {@code HEAD} requests.
+     *
+     * @param downloader {@link Downloader} used for changed pages
+     * @param directory  directory where links of pages are stored, created if it doesn't exist
+     * @param maxBytes   limit of memory used by pages kept in memory
+     * @throws IOException if directory can't be created
+     * @see #httpValidator(String)
+     */
+    public RevalidatingDownloader(Downloader downloader, Path directory, long maxBytes) throws IOException {
+        this(downloader, directory, maxBytes, RevalidatingDownloader::httpValidator);
+    }
+
+    /**
+     * Constructs downloader that gets validators of pages by given {@link Revalidator}.
+     *
+     * @param downloader  {@link Downloader} used for changed pages
+     * @param directory   directory where links of pages are stored, created if it doesn't exist
+     * @param maxBytes    limit of memory used by pages kept in memory
+     * @param revalidator source of current validators of pages
+     * @throws IOException if directory can't be created
+     */
+    public RevalidatingDownloader(Downloader downloader, Path directory, long maxBytes, Revalidator revalidator)
+            throws IOException {
+        this.downloader = downloader;
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.revalidator = revalidator;
+    }
+
+    /**
+     * Returns stored page if its validator isn't changed, otherwise downloads page by wrapped {@link Downloader}.
+     * Links of downloaded page are stored when they are extracted.
+     *
+     * @param url URL to download.
+     * @return downloaded or stored document.
+     * @throws IOException if an error occurred.
+     */
+    @Override
+    public Document download(String url) throws IOException {
+        String validator;
+        try {
+            validator = revalidator.validator(url);
+        } catch (IOException e) {
+            validator = null;
+        }
+        if (validator != null) {
+            Page page = lookup(url);
+            if (page != null && page.validator().equals(validator)) {
+                return page::links;
+            }
+        }
+        Document document = downloader.download(url);
+        String current = validator;
+        return () -> {
+            List<String> links = document.extractLinks();
+            if (current != null) {
+                store(new Page(url, current, List.copyOf(links)));
+            }
+            return links;
+        };
+    }
+
+    /**
+     * Returns validator of page from {@code ETag} or {@code Last-Modified} header of response to HTTP {@code HEAD} request.
+     *
+     * @param url url of page.
+     * @return validator of page or {@code null} if server doesn't provide it.
+     * @throws IOException if an error occurred.
+     */
+    public static String httpValidator(String url) throws IOException {
+        URLConnection connection = URLUtils.getURI(url).toURL().openConnection();
+        if (!(connection instanceof HttpURLConnection http)) {
+            return null;
+        }
+        try {
+            http.setRequestMethod("HEAD");
+            http.setConnectTimeout(CONNECT_TIMEOUT);
+            http.setReadTimeout(READ_TIMEOUT);
+            if (http.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            String etag = http.getHeaderField("ETag");
+            if (etag != null && !etag.startsWith("W/")) {
+                return "ETag " + etag;
+            }
+            String modified = http.getHeaderField("Last-Modified");
+            return modified == null ? null : "Last-Modified " + modified;
+        } finally {
+            http.disconnect();
+        }
+    }
+
+    private Page lookup(String url) {
+        synchronized (memory) {
+            Page page = memory.get(url);
+            if (page != null) {
+                return page;
+            }
+        }
+        Page page = read(file(url));
+        if (page != null && page.url().equals(url)) {
+            remember(page);
+            return page;
+        }
+        return null;
+    }
+
+    private void store(Page page) {
+        remember(page);
+        Path file = file(page.url());
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, null, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                byte[] content = page.serialize();
+                out.writeInt(MAGIC);
+                out.writeInt(content.length);
+                out.write(content);
+                out.write(digest(content));
+            }
+            // replaced at once, so page file is either old or new one even after crash
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // page stays in memory, it will be downloaded again after restart
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    private void remember(Page page) {
+        synchronized (memory) {
+            Page old = memory.put(page.url(), page);
+            bytes += page.bytes() - (old == null ? 0 : old.bytes());
+            Iterator<Page> eldest = memory.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().bytes();
+                eldest.remove();
+            }
+        }
+    }
+
+    private Path file(String url) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest(url.getBytes(StandardCharsets.UTF_8))) {
+            name.append(String.format("%02x", b));
+        }
+        return directory.resolve(name.toString());
+    }
+
+    private static Page read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            byte[] content = in.readNBytes(in.readInt());
+            // file of another version or damaged one is ignored and overwritten on next download
+            return Arrays.equals(in.readAllBytes(), digest(content)) ? Page.deserialize(content) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+    }
+
+    /**
+     * Source of current validators of pages.
+     */
+    @FunctionalInterface
+    public interface Revalidator {
+        /**
+         * Returns current validator of page, that changes whenever page is changed.
+         *
+         * @param url url of page.
+         * @return validator or {@code null} if page may change without changing validator.
+         * @throws IOException if an error occurred, then page is downloaded.
+         */
+        String validator(String url) throws IOException;
+    }
+
+    private record Page(String url, String validator, List<String> links) {
+        private long bytes() {
+            // rough size of strings and references
+            long size = 64 + 2L * (url.length() + validator.length());
+            for (String link : links) {
+                size += 48 + 2L * link.length();
+            }
+            return size;
+        }
+
+        private byte[] serialize() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writeString(out, url);
+                writeString(out, validator);
+                out.writeInt(links.size());
+                for (String link : links) {
+                    writeString(out, link);
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        private static Page deserialize(byte[] content) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+            String url = readString(in);
+            String validator = readString(in);
+            int size = in.readInt();
+            List<String> links = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                links.add(readString(in));
+            }
+            return new Page(url, validator, List.copyOf(links));
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package info.kgeorgiy.ja.churakova.crawler;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of urls already met by crawler.
+ */
+@FunctionalInterface
+interface VisitedSet {
+    /**
+     * Marks url as visited.
+     *
+     * @param url url to mark.
+     * @return {@code true} if url wasn't visited before.
+     */
+    boolean add(String url);
+
+    /**
+     * Returns exact set of visited urls, every {@link #add} takes constant time.
+     *
+     * @return new empty set.
+     */
+    static VisitedSet concurrent() {
+        return ConcurrentHashMap.<String>newKeySet()::add;
+    }
+}
@@ -4,17 +4,27 @@ import info.kgeorgiy.java.advanced.crawler.*;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.function.Supplier;
 
 public class WebCrawler implements Crawler {
+    private static final double SLOW_FACTOR = 2;
+    private static final double FAILURE_RATE = 0.5;
+    private static final double RECENT_WEIGHT = 0.2;
+    private static final double USUAL_WEIGHT = 0.02;
+
     private final Downloader downloader;
     private final ExecutorService downloaders;
     private final ExecutorService extractors;
     private final ConcurrentMap<String, HostHandler> hosts;
     private final int perHost;
+    private final Supplier<VisitedSet> visitedSets;
+    private final boolean adaptive;
+    private final long interval;
+    private final ScheduledExecutorService scheduler;
 
     /**
      * Constructs class with given {@link Downloader}, amount of downloaders, extractors, defined host load
@@ -25,15 +35,67 @@ public class WebCrawler implements Crawler {
      * @param perHost     limit for onetime downloaded pages from single host
      */
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this(downloader, downloaders, extractors, perHost, VisitedSet::concurrent, false, 0);
+    }
+
+    /**
+     * Constructs class that adapts amount of onetime downloaded pages from single host and limits rate of downloads
+     * <p>
+     * If {@code adaptive}, amount of onetime downloaded pages from host is halved when download fails or takes
+     * much longer than usual for this host, otherwise it slowly grows back up to {@code perHost}.
+     * Pages waiting for their host don't hold downloader threads.
+     *
+     * @param downloader        {@link CachingDownloader} downloads pages and extracts links from them
+     * @param downloaders       limit for onetime downloaded pages
+     * @param extractors        maximal amount of pages from which onetime links extracts
+     * @param perHost           limit for onetime downloaded pages from single host
+     * @param adaptive          whether amount of onetime downloaded pages from single host adapts to host
+     * @param requestsPerSecond limit for downloads started per second from single host, non-positive for no limit
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                      boolean adaptive, double requestsPerSecond) {
+        this(downloader, downloaders, extractors, perHost, VisitedSet::concurrent, adaptive,
+                requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0);
+    }
+
+    /**
+     * Constructs class that checks visited urls in Bloom filter of fixed size in front of exact set
+     * <p>
+     * Every url is still added to exact set, that decides when filter considers url visited,
+     * so no page is skipped by mistake. Memory used by download isn't bounded: exact set,
+     * downloaded urls and links of the next level keep every found url.
+     *
+     * @param downloader        {@link CachingDownloader} downloads pages and extracts links from them
+     * @param downloaders       limit for onetime downloaded pages
+     * @param extractors        maximal amount of pages from which onetime links extracts
+     * @param perHost           limit for onetime downloaded pages from single host
+     * @param expectedUrls      expected amount of urls found during download
+     * @param falsePositiveRate acceptable probability of filter to consider not visited url visited
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                      long expectedUrls, double falsePositiveRate) {
+        this(downloader, downloaders, extractors, perHost, BloomFilter.factory(expectedUrls, falsePositiveRate),
+                false, 0);
+    }
+
+    private WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                       Supplier<VisitedSet> visitedSets, boolean adaptive, long interval) {
         this.downloader = downloader;
         this.downloaders = Executors.newFixedThreadPool(downloaders);
         this.extractors = Executors.newFixedThreadPool(extractors);
         hosts = new ConcurrentHashMap<>();
         this.perHost = perHost;
+        this.visitedSets = visitedSets;
+        this.adaptive = adaptive;
+        this.interval = interval;
+        this.scheduler = interval > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
     }
 
     /**
      * Downloads website up to specified depth.
+     * <p>
+     * Pages are downloaded level by level. Level is started by thread that finishes the last task of previous level,
+     * so no thread waits on level border and found links are kept in unbounded queue of next level.
      *
      * @param url   start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
      * @param depth download depth.
@@ -41,14 +103,42 @@ public class WebCrawler implements Crawler {
      */
     @Override
     public Result download(String url, int depth) {
-        ConcurrentMap<String, IOException> errors = new ConcurrentHashMap<>();
-        Set<String> result = new CopyOnWriteArraySet<>();
-        Set<String> visitedLinks = new CopyOnWriteArraySet<>();
-        visitedLinks.add(url);
-        Phaser phaser = new Phaser(1);
-        bfs(errors, result, visitedLinks, phaser, url, depth - 1);
-        phaser.arriveAndAwaitAdvance();
-        return new Result(new ArrayList<>(result), errors);
+        Crawl crawl = new Crawl(null);
+        crawl.visited.add(url);
+        crawl.startLevel(List.of(url), depth - 1);
+        crawl.done.join();
+        return new Result(new ArrayList<>(crawl.result), crawl.errors);
+    }
+
+    /**
+     * Downloads website up to specified depth, recording progress to given journal
+     * <p>
+     * If journal already contains progress of download of the same url and depth, e.g. interrupted by crash,
+     * download is continued: downloaded and failed pages aren't downloaded again.
+     * Links found for the next level are read from journal instead of being kept in memory.
+     *
+     * @param url     start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth   download depth.
+     * @param journal file of journal, created if it doesn't exist
+     * @return {@link Result} containing downloaded urls and errors mapped for urls on which download errors occur,
+     * including ones of previous runs
+     * @throws IOException if journal can't be read or written or it belongs to download of another url or depth
+     */
+    public Result download(String url, int depth, Path journal) throws IOException {
+        try (CrawlJournal log = new CrawlJournal(journal)) {
+            Crawl crawl = new Crawl(log);
+            crawl.visited.add(url);
+            crawl.resume(url, depth);
+            try {
+                crawl.done.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+            return new Result(new ArrayList<>(crawl.result), crawl.errors);
+        }
     }
 
     /**
@@ -58,108 +148,274 @@ public class WebCrawler implements Crawler {
     public void close() {
         downloaders.shutdown();
         extractors.shutdown();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
     }
 
-    private void bfs(ConcurrentMap<String, IOException> exceptions, Set<String> result, Set<String> visited, Phaser phaser,
-                     String url, int depth) {
-        BlockingQueue<Link> linkQueue = new ArrayBlockingQueue<>(10000);
-        addLinkOrException(linkQueue, exceptions, url, depth);
-        while (!linkQueue.isEmpty()) {
-            Link currentLink = linkQueue.poll();
-            phaser.register();
-            currentLink.addNewTask(
-                    () -> downloadersTask(linkQueue, currentLink, result, visited, exceptions, phaser));
-
-            if (linkQueue.isEmpty()) {
-                phaser.arriveAndAwaitAdvance();
+    private class Crawl {
+        private final ConcurrentMap<String, IOException> errors = new ConcurrentHashMap<>();
+        private final Set<String> result = ConcurrentHashMap.newKeySet();
+        private final VisitedSet visited = visitedSets.get();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final CrawlJournal journal;
+
+        private Crawl(CrawlJournal journal) {
+            this.journal = journal;
+        }
+
+        private void resume(String url, int depth) throws IOException {
+            String header = depth + " " + url;
+            Set<String> finished = new HashSet<>();
+            Set<String> extracted = new HashSet<>();
+            // ends of the last two level entries and depth of the last level
+            long[] levels = {-1, -1};
+            int[] last = {0, 0};
+            journal.read(0, journal.position(), entry -> {
+                switch (entry.type()) {
+                    case CrawlJournal.CRAWL -> {
+                        if (!entry.value().equals(header)) {
+                            throw new IOException("Journal belongs to download of " + entry.value());
+                        }
+                    }
+                    case CrawlJournal.LEVEL -> {
+                        levels[0] = levels[1];
+                        levels[1] = entry.end();
+                        last[0] = Integer.parseInt(entry.value());
+                        last[1] = 0;
+                        finished.clear();
+                        extracted.clear();
+                    }
+                    case CrawlJournal.FOUND -> {
+                        visited.add(entry.value());
+                        last[1]++;
+                    }
+                    case CrawlJournal.DOWNLOADED -> {
+                        result.add(entry.value());
+                        finished.add(entry.value());
+                    }
+                    case CrawlJournal.EXTRACTED -> extracted.add(entry.value());
+                    case CrawlJournal.FAILED -> {
+                        int tab = entry.value().indexOf('\t');
+                        String link = entry.value().substring(0, tab);
+                        errors.put(link, new IOException(entry.value().substring(tab + 1)));
+                        finished.add(link);
+                        extracted.add(link);
+                    }
+                    default -> throw new IOException("Unknown journal entry " + entry.type());
+                }
+            });
+            if (levels[1] < 0) {
+                if (journal.position() == 0) {
+                    journal.write(CrawlJournal.CRAWL, header);
+                }
+                startLevel(List.of(url), depth - 1);
+                return;
             }
+            Level level = new Level(last[0], levels[1]);
+            level.found.set(last[1]);
+            CrawlJournal.EntryConsumer resumeLink = entry -> {
+                String link = entry.value();
+                // page of level with extraction left is downloaded again to get its document
+                if (!finished.contains(link) || level.depth > 0 && !extracted.contains(link)) {
+                    submit(level, link);
+                }
+            };
+            if (levels[0] < 0) {
+                resumeLink.accept(new CrawlJournal.Entry(CrawlJournal.FOUND, url, 0));
+            } else {
+                journal.read(levels[0], levels[1], entry -> {
+                    if (entry.type() == CrawlJournal.FOUND) {
+                        resumeLink.accept(entry);
+                    }
+                });
+            }
+            arrive(level);
         }
 
-    }
+        private void startLevel(Collection<String> links, int depth) {
+            Level level = newLevel(depth);
+            links.forEach(link -> submit(level, link));
+            arrive(level);
+        }
 
-    private void downloadersTask(BlockingQueue<Link> linkQueue, Link curLink, Set<String> result, Set<String> visited,
-                                 ConcurrentMap<String, IOException> exceptions, Phaser phaser) {
-        try {
-            Document doc = downloader.download(curLink.getLink());
-            result.add(curLink.getLink());
-            if (curLink.getDepth() > 0) {
-                phaser.register();
-                extractors.submit(() -> extractorsTask(linkQueue, doc, curLink, visited, exceptions, phaser));
+        private Level newLevel(int depth) {
+            if (journal == null) {
+                return new Level(depth, 0);
+            }
+            log(CrawlJournal.LEVEL, Integer.toString(depth));
+            try {
+                return new Level(depth, journal.position());
+            } catch (IOException e) {
+                done.completeExceptionally(e);
+                return new Level(depth, 0);
             }
-        } catch (IOException e) {
-            exceptions.put(curLink.getLink(), e);
-        } finally {
-            phaser.arriveAndDeregister();
-            curLink.produceNextTask();
         }
-    }
 
-    private void extractorsTask(BlockingQueue<Link> linkQueue, Document doc, Link curLink, Set<String> visited,
-                                ConcurrentMap<String, IOException> exceptions,
-                                Phaser phaser) {
-        try (Stream<String> links = doc.extractLinks().stream()) {
-            links.filter(visited::add).forEach(
-                    link -> addLinkOrException(linkQueue, exceptions, link, curLink.getDepth() - 1));
+        private void submit(Level level, String link) {
+            try {
+                HostHandler handler = hosts.computeIfAbsent(URLUtils.getHost(link), host -> new HostHandler());
+                level.pending.incrementAndGet();
+                handler.submit(() -> downloadersTask(level, link, handler));
+            } catch (MalformedURLException mUrl) {
+                fail(link, mUrl);
+            }
+        }
 
-        } catch (IOException l) {
-            exceptions.put(curLink.getLink(), l);
-        } finally {
-            phaser.arriveAndDeregister();
+        private void downloadersTask(Level level, String link, HostHandler handler) {
+            final long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Document doc = downloader.download(link);
+                failed = false;
+                result.add(link);
+                log(CrawlJournal.DOWNLOADED, link);
+                if (level.depth > 0) {
+                    level.pending.incrementAndGet();
+                    extractors.submit(() -> extractorsTask(level, link, doc));
+                }
+            } catch (IOException e) {
+                fail(link, e);
+            } finally {
+                handler.finished(System.nanoTime() - start, failed);
+                arrive(level);
+            }
         }
-    }
 
-    private void addLinkOrException(BlockingQueue<Link> linkQueue, ConcurrentMap<String, IOException> exceptions,
-                                    String link, int depth) {
-        try {
-            while (!linkQueue.offer(
-                    new Link(link, new AtomicInteger(depth), hosts.computeIfAbsent(URLUtils.getHost(link), host -> new HostHandler())
-                    ))) ;
-        } catch (MalformedURLException mUrl) {
-            exceptions.put(link, mUrl);
+        private void extractorsTask(Level level, String link, Document doc) {
+            try {
+                for (String next : doc.extractLinks()) {
+                    if (visited.add(next)) {
+                        level.found.incrementAndGet();
+                        if (journal == null) {
+                            level.next.add(next);
+                        } else {
+                            log(CrawlJournal.FOUND, next);
+                        }
+                    }
+                }
+                log(CrawlJournal.EXTRACTED, link);
+            } catch (IOException l) {
+                fail(link, l);
+            } finally {
+                arrive(level);
+            }
         }
-    }
 
-    private record Link(String link, AtomicInteger depth, HostHandler handler) {
-        public String getLink() {
-            return link;
+        private void fail(String link, IOException e) {
+            errors.put(link, e);
+            log(CrawlJournal.FAILED, link + "\t" + e.getMessage());
         }
 
-        public int getDepth() {
-            return depth.get();
+        private void log(char type, String value) {
+            if (journal != null && !done.isDone()) {
+                try {
+                    journal.write(type, value);
+                } catch (IOException e) {
+                    done.completeExceptionally(e);
+                }
+            }
         }
 
-        public void addNewTask(Runnable task) {
-            handler.submitOrDelay(task);
+        private void arrive(Level level) {
+            if (level.pending.decrementAndGet() > 0) {
+                return;
+            }
+            if (level.found.get() == 0 || done.isDone()) {
+                done.complete(null);
+            } else if (journal == null) {
+                startLevel(level.next, level.depth - 1);
+            } else {
+                try {
+                    long end = journal.position();
+                    Level next = newLevel(level.depth - 1);
+                    journal.read(level.start, end, entry -> {
+                        if (entry.type() == CrawlJournal.FOUND) {
+                            submit(next, entry.value());
+                        }
+                    });
+                    arrive(next);
+                } catch (IOException e) {
+                    done.completeExceptionally(e);
+                }
+            }
         }
+    }
 
-        public void produceNextTask() {
-            handler.nextOrRelieve();
+    private static class Level {
+        private final int depth;
+        // offset of journal where entries of level begin
+        private final long start;
+        // the level itself is pending until all its tasks are submitted
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicInteger found = new AtomicInteger();
+        private final Queue<String> next = new ConcurrentLinkedQueue<>();
+
+        private Level(int depth, long start) {
+            this.depth = depth;
+            this.start = start;
         }
     }
 
     private class HostHandler {
-        private final Queue<Runnable> queue;
-        AtomicInteger onHost;
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+        private int running;
+        private double limit = perHost;
+        private double recentLatency;
+        private double usualLatency;
+        private double failures;
+        // downloads finished since the last decrease, so the first overload decreases limit at once
+        private int sinceDecrease = perHost;
+        private long nextStart = System.nanoTime();
+        private boolean waking;
 
-        public HostHandler() {
-            queue = new ConcurrentLinkedQueue<>();
-            onHost = new AtomicInteger(0);
+        public synchronized void submit(Runnable task) {
+            queue.add(task);
+            startReady();
         }
 
-        public void submitOrDelay(Runnable task) {
-            if (onHost.get() >= perHost) {
-                queue.add(task);
-            } else {
-                downloaders.submit(task);
-                onHost.incrementAndGet();
+        public synchronized void finished(long nanos, boolean failed) {
+            running--;
+            if (adaptive) {
+                recentLatency = average(recentLatency, nanos, RECENT_WEIGHT);
+                usualLatency = average(usualLatency, nanos, USUAL_WEIGHT);
+                failures += ((failed ? 1 : 0) - failures) * RECENT_WEIGHT;
+                boolean overloaded = failures > FAILURE_RATE || recentLatency > SLOW_FACTOR * usualLatency;
+                sinceDecrease = Math.min(perHost, sinceDecrease + 1);
+                // additive increase, multiplicative decrease at most once per window of downloads
+                if (!overloaded) {
+                    limit = Math.min(perHost, limit + 1 / limit);
+                } else if (sinceDecrease >= limit) {
+                    limit = Math.max(1, limit / 2);
+                    sinceDecrease = 0;
+                }
             }
+            startReady();
         }
 
-        public void nextOrRelieve() {
-            if (!queue.isEmpty()) {
-                downloaders.submit(queue.poll());
-            } else {
-                onHost.decrementAndGet();
+        private double average(double average, long sample, double weight) {
+            return average == 0 ? sample : average + (sample - average) * weight;
+        }
+
+        private synchronized void wake() {
+            waking = false;
+            startReady();
+        }
+
+        private void startReady() {
+            while (!queue.isEmpty() && running < (int) limit) {
+                long now = System.nanoTime();
+                if (interval > 0 && now - nextStart < 0) {
+                    // delayed start is scheduled instead of sleeping in downloader thread
+                    if (!waking) {
+                        waking = true;
+                        scheduler.schedule(this::wake, nextStart - now, TimeUnit.NANOSECONDS);
+                    }
+                    return;
+                }
+                nextStart = now + interval;
+                running++;
+                downloaders.execute(queue.poll());
             }
         }
     }
@@ -0,0 +1,189 @@
+package info.kgeorgiy.ja.churakova.crawler.test;
+
+import info.kgeorgiy.ja.churakova.crawler.RevalidatingDownloader;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.internal.TextListener;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class RevalidatingDownloaderTest {
+    private static final String URL = "http://site.com/page";
+    private static final String OTHER = "http://site.com/other";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, String> validators = new HashMap<>();
+    private final Map<String, List<String>> pages = new HashMap<>();
+    private int downloads;
+    private int extractions;
+    private Path directory;
+
+    public static void main(String[] args) {
+        JUnitCore jUnit = new JUnitCore();
+        jUnit.addListener(new TextListener(System.out));
+        System.exit(jUnit.run(RevalidatingDownloaderTest.class).wasSuccessful() ? 0 : 1);
+    }
+
+    @Before
+    public void init() {
+        directory = folder.getRoot().toPath().resolve("pages");
+        pages.put(URL, links("a", 3));
+        pages.put(OTHER, links("b", 3));
+        validators.put(URL, "1");
+        validators.put(OTHER, "1");
+    }
+
+    @Test
+    public void test1_unchanged() throws IOException {
+        RevalidatingDownloader downloader = create(1 << 20);
+        Assert.assertEquals("Links of downloaded page expected", pages.get(URL), extract(downloader, URL));
+        Assert.assertEquals("Links of stored page expected", pages.get(URL), extract(downloader, URL));
+        Assert.assertEquals("Unchanged page shouldn't be downloaded again", 1, downloads);
+        Assert.assertEquals("Links of unchanged page shouldn't be extracted again", 1, extractions);
+    }
+
+    @Test
+    public void test2_changed() throws IOException {
+        RevalidatingDownloader downloader = create(1 << 20);
+        extract(downloader, URL);
+        validators.put(URL, "2");
+        pages.put(URL, links("c", 2));
+        Assert.assertEquals("Links of changed page expected", pages.get(URL), extract(downloader, URL));
+        Assert.assertEquals("Changed page should be downloaded again", 2, downloads);
+        Assert.assertEquals("New links should be stored", pages.get(URL), extract(downloader, URL));
+        Assert.assertEquals("Page stored after change shouldn't be downloaded again", 2, downloads);
+    }
+
+    @Test
+    public void test3_withoutValidator() throws IOException {
+        validators.remove(URL);
+        RevalidatingDownloader downloader = create(1 << 20);
+        extract(downloader, URL);
+        extract(downloader, URL);
+        Assert.assertEquals("Page without validator should be downloaded every time", 2, downloads);
+
+        RevalidatingDownloader failing = new RevalidatingDownloader(this::download, directory, 1 << 20, url -> {
+            throw new IOException("No connection");
+        });
+        extract(failing, OTHER);
+        extract(failing, OTHER);
+        Assert.assertEquals("Page should be downloaded if validator isn't known", 4, downloads);
+    }
+
+    @Test
+    public void test4_restart() throws IOException {
+        extract(create(1 << 20), URL);
+        Assert.assertEquals("Page stored before restart expected", pages.get(URL), extract(create(0), URL));
+        Assert.assertEquals("Page stored before restart shouldn't be downloaded again", 1, downloads);
+        validators.put(URL, "2");
+        extract(create(0), URL);
+        Assert.assertEquals("Page changed after restart should be downloaded again", 2, downloads);
+    }
+
+    @Test
+    public void test5_corrupted() throws IOException {
+        extract(create(1 << 20), URL);
+        List<Path> files = files();
+        Assert.assertEquals("One stored page expected", 1, files.size());
+        byte[] content = Files.readAllBytes(files.get(0));
+        content[content.length / 2] ^= 1;
+        Files.write(files.get(0), content);
+        Assert.assertEquals("Links of downloaded page expected", pages.get(URL), extract(create(0), URL));
+        Assert.assertEquals("Corrupted page should be downloaded again", 2, downloads);
+
+        Files.write(files.get(0), new byte[]{1, 2, 3});
+        extract(create(0), URL);
+        Assert.assertEquals("Truncated page should be downloaded again", 3, downloads);
+        extract(create(0), URL);
+        Assert.assertEquals("Page should be stored again after corruption", 3, downloads);
+    }
+
+    @Test
+    public void test6_memoryLimit() throws IOException, ReflectiveOperationException {
+        pages.put(URL, links("a", 10));
+        pages.put(OTHER, links("b", 10));
+        long limit = 1500;
+        RevalidatingDownloader downloader = create(limit);
+        extract(downloader, URL);
+        Assert.assertTrue("Memory limit exceeded", memory(downloader) <= limit);
+        extract(downloader, OTHER);
+        Assert.assertTrue("Memory limit exceeded", memory(downloader) <= limit);
+        deleteFiles();
+        extract(downloader, OTHER);
+        Assert.assertEquals("The most recently used page should be kept in memory", 2, downloads);
+        extract(downloader, URL);
+        Assert.assertEquals("Page that doesn't fit in memory limit should be evicted", 3, downloads);
+        Assert.assertTrue("Memory limit exceeded", memory(downloader) <= limit);
+
+        deleteFiles();
+        RevalidatingDownloader large = create(1 << 20);
+        extract(large, URL);
+        extract(large, OTHER);
+        deleteFiles();
+        extract(large, URL);
+        extract(large, OTHER);
+        Assert.assertEquals("Pages fitting in memory limit should be kept in memory", 5, downloads);
+    }
+
+    private RevalidatingDownloader create(long maxBytes) throws IOException {
+        return new RevalidatingDownloader(this::download, directory, maxBytes, validators::get);
+    }
+
+    private Document download(String url) {
+        downloads++;
+        List<String> links = List.copyOf(pages.get(url));
+        return () -> {
+            extractions++;
+            return links;
+        };
+    }
+
+    private static List<String> extract(Downloader downloader, String url) throws IOException {
+        return downloader.download(url).extractLinks();
+    }
+
+    private static List<String> links(String prefix, int amount) {
+        return IntStream.range(0, amount).mapToObj(i -> "http://site.com/" + prefix + "/link" + i)
+                .collect(Collectors.toList());
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private void deleteFiles() throws IOException {
+        files().forEach(file -> {
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static long memory(RevalidatingDownloader downloader) throws ReflectiveOperationException {
+        Field bytes = RevalidatingDownloader.class.getDeclaredField("bytes");
+        bytes.setAccessible(true);
+        return bytes.getLong(downloader);
+    }
+}
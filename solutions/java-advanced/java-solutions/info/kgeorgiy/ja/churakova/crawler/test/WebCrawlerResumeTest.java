@@ -0,0 +1,153 @@
+package info.kgeorgiy.ja.churakova.crawler.test;
+
+import info.kgeorgiy.ja.churakova.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.internal.TextListener;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.JUnitCore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class WebCrawlerResumeTest {
+    private static final int PAGES = 80;
+    private static final int LINKS = 4;
+    private static final int DEPTH = 4;
+    private static final int CUTS = 200;
+    private static final String ROOT = url(0);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger downloads = new AtomicInteger();
+    private WebCrawler crawler;
+
+    public static void main(String[] args) {
+        JUnitCore jUnit = new JUnitCore();
+        jUnit.addListener(new TextListener(System.out));
+        System.exit(jUnit.run(WebCrawlerResumeTest.class).wasSuccessful() ? 0 : 1);
+    }
+
+    @Before
+    public void init() {
+        crawler = new WebCrawler(this::download, 8, 8, 2);
+    }
+
+    @After
+    public void close() {
+        crawler.close();
+    }
+
+    @Test
+    public void test1_journaled() throws IOException {
+        Result expected = crawler.download(ROOT, DEPTH);
+        Assert.assertTrue("Site should have failed pages", !expected.getErrors().isEmpty());
+        assertSame("Journaled crawl", expected, crawler.download(ROOT, DEPTH, folder.getRoot().toPath().resolve("log")));
+    }
+
+    @Test
+    public void test2_complete() throws IOException {
+        Path journal = folder.getRoot().toPath().resolve("log");
+        Result expected = crawler.download(ROOT, DEPTH, journal);
+        downloads.set(0);
+        assertSame("Resumed complete crawl", expected, crawler.download(ROOT, DEPTH, journal));
+        Assert.assertEquals("Complete crawl shouldn't download pages again", 0, downloads.get());
+    }
+
+    @Test
+    public void test3_resume() throws IOException {
+        Result expected = crawler.download(ROOT, DEPTH);
+        Path full = folder.getRoot().toPath().resolve("full");
+        crawler.download(ROOT, DEPTH, full);
+        byte[] journal = Files.readAllBytes(full);
+        int total = downloads.get();
+        for (int cut : cuts(journal)) {
+            Path part = folder.getRoot().toPath().resolve("part" + cut);
+            Files.write(part, Arrays.copyOf(journal, cut));
+            downloads.set(0);
+            assertSame("Crawl resumed from " + cut + " of " + journal.length + " bytes", expected,
+                    crawler.download(ROOT, DEPTH, part));
+            Assert.assertTrue("Resumed crawl shouldn't download more than whole crawl", downloads.get() <= total);
+        }
+    }
+
+    @Test
+    public void test4_another() throws IOException {
+        Path journal = folder.getRoot().toPath().resolve("log");
+        crawler.download(ROOT, DEPTH, journal);
+        try {
+            crawler.download(url(1), DEPTH, journal);
+            Assert.fail("Journal of another crawl should be rejected");
+        } catch (IOException ignored) {
+        }
+        try {
+            crawler.download(ROOT, DEPTH - 1, journal);
+            Assert.fail("Journal of crawl with another depth should be rejected");
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static List<Integer> cuts(byte[] journal) {
+        // every entry border and middle of every entry, as if crash happened during writing
+        List<Integer> cuts = new ArrayList<>(List.of(0));
+        for (int i = 0, start = 0; i < journal.length; i++) {
+            if (journal[i] == '\n') {
+                cuts.add(start + (i - start) / 2);
+                cuts.add(i + 1);
+                start = i + 1;
+            }
+        }
+        if (cuts.size() <= CUTS) {
+            return cuts;
+        }
+        List<Integer> sample = new ArrayList<>();
+        for (int i = 0; i < CUTS; i++) {
+            sample.add(cuts.get((int) ((long) i * (cuts.size() - 1) / (CUTS - 1))));
+        }
+        return sample;
+    }
+
+    private static void assertSame(String message, Result expected, Result actual) {
+        Assert.assertEquals(message + ": downloaded", Set.copyOf(expected.getDownloaded()),
+                Set.copyOf(actual.getDownloaded()));
+        Assert.assertEquals(message + ": errors", messages(expected), messages(actual));
+    }
+
+    private static Map<String, String> messages(Result result) {
+        return result.getErrors().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getMessage()));
+    }
+
+    private Document download(String url) throws IOException {
+        downloads.incrementAndGet();
+        int page = Integer.parseInt(url.substring(url.lastIndexOf('p') + 1));
+        if (page % 11 == 5) {
+            throw new IOException("Page " + page + "\nisn't available");
+        }
+        return () -> {
+            if (page % 13 == 7) {
+                throw new IOException("Page " + page + " is broken");
+            }
+            Random random = new Random(page);
+            List<String> links = new ArrayList<>();
+            for (int i = 0; i < LINKS; i++) {
+                links.add(url(random.nextInt(PAGES)));
+            }
+            return links;
+        };
+    }
+
+    private static String url(int page) {
+        return "http://host" + page % 3 + ".com/p" + page;
+    }
+}
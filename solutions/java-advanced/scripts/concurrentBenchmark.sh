@@ -0,0 +1,26 @@
+#!/bin/bash
+
+# JMH jars (jmh-core, jmh-generator-annprocess, jopt-simple, commons-math3) are expected in $SRC/lib
+# Benchmarks live in their own source root $SRC/benchmarks, so java-solutions builds without JMH
+# Extra arguments are passed to JMH, e.g. ./concurrentBenchmark.sh -p size=10000 -p threads=4 count
+
+PACKAGE=concurrent
+SRC=$(realpath ../../)/java-advanced
+CodeSRC=$SRC/java-solutions
+Tests=$(realpath ../../../)/java-advanced-2023
+Build=$SRC/out/benchmark
+MYCLASSES="$CodeSRC/info/kgeorgiy/ja/churakova/$PACKAGE"
+BENCHMARKS="$SRC/benchmarks/info/kgeorgiy/ja/churakova/$PACKAGE/benchmark"
+CLASSPATH="$Tests/artifacts/*:$SRC/lib/*"
+# javac doesn't expand wildcard of processor path, so jars are listed
+PROCESSORPATH=$(find "$SRC/lib" -name "*.jar" | tr '\n' ':')
+
+if ! [ -d "$Build" ]
+then
+    mkdir -p "$Build"
+fi
+
+# shellcheck disable=SC2086
+javac -d $Build -cp "$CLASSPATH" -processorpath "$PROCESSORPATH" $MYCLASSES/*.java $BENCHMARKS/*.java || exit 1
+# shellcheck disable=SC2086
+java -cp "$Build:$CLASSPATH" org.openjdk.jmh.Main "info.kgeorgiy.ja.churakova.$PACKAGE.benchmark" -prof gc "$@"